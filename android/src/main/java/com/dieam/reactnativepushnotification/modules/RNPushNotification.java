@@ -1,12 +1,9 @@
 package com.dieam.reactnativepushnotification.modules;
 
 import android.app.Activity;
-import android.app.Application;
-import android.app.NotificationManager;
 import android.content.BroadcastReceiver;
 import android.content.Intent;
 import android.content.IntentFilter;
-import android.os.Build;
 import android.os.Bundle;
 import android.util.Log;
 
@@ -18,11 +15,14 @@ import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
-import com.facebook.react.modules.core.DeviceEventManagerModule;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
@@ -35,17 +35,29 @@ import android.util.Log;
 public class RNPushNotification extends ReactContextBaseJavaModule {
     private ReactContext mReactContext;
     private RNPushNotificationHelper mRNPushNotificationHelper;
+    private RNPushNotificationForegroundTracker mForegroundTracker;
+    private RNPushNotificationEventEmitter mEventEmitter;
+    private RNPushNotificationEventBuffer mEventBuffer;
+    private final RNPushNotificationActionRegistry mActions = RNPushNotificationActionRegistry.getInstance();
+    private final List<BroadcastReceiver> mReceivers = new ArrayList<>();
     private String token;
+    private volatile boolean mStructuredEvents;
     private final Random mRandomNumberGenerator;
 
     public RNPushNotification(ReactApplicationContext reactContext) {
         super(reactContext);
 
         mReactContext = reactContext;
-        mRNPushNotificationHelper = new RNPushNotificationHelper((Application) reactContext.getApplicationContext());
+        mRNPushNotificationHelper = RNPushNotificationHelper.getInstance(reactContext);
+        mForegroundTracker = RNPushNotificationForegroundTracker.getInstance(reactContext);
+        reactContext.addLifecycleEventListener(mForegroundTracker);
+        mEventEmitter = new RNPushNotificationEventEmitter(reactContext);
+        mEventBuffer = RNPushNotificationEventBuffer.getInstance(reactContext);
+        mEventBuffer.setHasModule(true);
         mRandomNumberGenerator = new Random(System.currentTimeMillis());
         registerNotificationsRegistration();
         registerNotificationsReceiveNotification();
+        registerNotificationsReceiveNotificationActions();
     }
 
     @Override
@@ -60,12 +72,35 @@ public class RNPushNotification extends ReactContextBaseJavaModule {
         return constants;
     }
 
-    private void sendEvent(String eventName, Object params) {
-        if (mReactContext.hasActiveCatalystInstance()) {
-            mReactContext
-                    .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                    .emit(eventName, params);
+    @Override
+    public void onCatalystInstanceDestroy() {
+        mEventBuffer.setHasModule(false);
+
+        for (BroadcastReceiver receiver : mReceivers) {
+            RNPushNotificationEventBus.unregister(receiver);
+            mReactContext.unregisterReceiver(receiver);
         }
+        mReceivers.clear();
+    }
+
+    private void sendEvent(String eventName, WritableMap params, String coalesceKey) {
+        mEventEmitter.emit(eventName, params, coalesceKey);
+    }
+
+    /**
+     * Send a notification event to JS, or keep it for later when JS is not there to receive it yet.
+     */
+    private void sendOrBuffer(final String eventName, final Bundle bundle, final String coalesceKey) {
+        mEventBuffer.dispatch(eventName, bundle, new RNPushNotificationEventBuffer.Emitter() {
+            @Override
+            public boolean emit() {
+                if (!mReactContext.hasActiveCatalystInstance()) {
+                    return false;
+                }
+                sendEvent(eventName, toEventParams(bundle), coalesceKey);
+                return true;
+            }
+        });
     }
 
     public void newIntent(Intent intent) {
@@ -78,94 +113,173 @@ public class RNPushNotification extends ReactContextBaseJavaModule {
     }
 
     private void registerNotificationsRegistration() {
-        IntentFilter intentFilter = new IntentFilter("RNPushNotificationRegisteredToken");
-
-        mReactContext.registerReceiver(new BroadcastReceiver() {
+        registerReceiver(new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
-                String newtoken = intent.getStringExtra("token");
-                token = newtoken;
-                WritableMap params = Arguments.createMap();
-                params.putString("deviceToken", token);
-
-                sendEvent("remoteNotificationsRegistered", params);
+                notifyRegistration(intent.getStringExtra("token"));
             }
-        }, intentFilter);
+        }, "RNPushNotificationRegisteredToken");
+    }
+
+    private void notifyRegistration(String newtoken) {
+        token = newtoken;
+        WritableMap params = Arguments.createMap();
+        params.putString("deviceToken", token);
+
+        // Only the latest token matters.
+        sendEvent("remoteNotificationsRegistered", params, "token");
     }
 
     private void registerNotificationsReceiveNotification() {
-        IntentFilter intentFilter = new IntentFilter("RNPushNotificationReceiveNotification");
-        mReactContext.registerReceiver(new BroadcastReceiver() {
+        registerReceiver(new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
                 notifyNotification(intent.getBundleExtra("notification"));
             }
-        }, intentFilter);
+        }, "RNPushNotificationReceiveNotification");
     }
 
     private void notifyNotification(Bundle bundle) {
-        String bundleString = convertJSON(bundle);
-
-        WritableMap params = Arguments.createMap();
-        params.putString("dataJSON", bundleString);
+        if (!bundle.containsKey("foreground")) {
+            bundle.putBoolean("foreground", mForegroundTracker.isForeground());
+        }
+        // Within a batch, a notification replaces an earlier one with the same tag, or else the same id.
+        String tag = bundle.getString("tag");
+        String coalesceKey = tag != null ? "tag:" + tag : "id:" + bundle.getString("id");
+        sendOrBuffer("remoteNotificationReceived", bundle, coalesceKey);
+    }
 
-        sendEvent("remoteNotificationReceived", params);
+    /**
+     * Receive the intents sent for action through RNPushNotificationEventBus, from this
+     * process directly and from other processes as broadcasts.
+     */
+    private void registerReceiver(BroadcastReceiver receiver, String action) {
+        RNPushNotificationEventBus.register(action, receiver);
+        mReactContext.registerReceiver(receiver, new IntentFilter(action));
+        mReceivers.add(receiver);
     }
 
-    private void registerNotificationsReceiveNotificationActions(ReadableArray actions) {
-        IntentFilter intentFilter = new IntentFilter();
-        // Add filter for each actions.
-        for (int i=0; i<actions.size(); i++) {
-            String action = actions.getString(i);
-            intentFilter.addAction(action);
-        }
-        mReactContext.registerReceiver(new BroadcastReceiver() {
+    /**
+     * One receiver for every action: RNPushNotificationActionReceiver only forwards the taps
+     * on registered actions, which are passed on to JS.
+     */
+    private void registerNotificationsReceiveNotificationActions() {
+        registerReceiver(new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
                 Bundle bundle = intent.getBundleExtra("notification");
+                if (bundle == null) {
+                    return;
+                }
 
                 // Notify the action.
                 notifyNotificationAction(bundle);
-
-                // Dismiss the notification popup.
-                NotificationManager manager = (NotificationManager) context.getSystemService(context.NOTIFICATION_SERVICE);
-                int notificationID = Integer.parseInt(bundle.getString("id"));
-                manager.cancel(notificationID);
             }
-        }, intentFilter);
+        }, RNPushNotificationActionReceiver.ACTION_RECEIVED);
+    }
+
+    private static Set<String> toActionSet(ReadableArray actions) {
+        Set<String> actionSet = new HashSet<>(actions.size());
+        for (int i = 0; i < actions.size(); i++) {
+            actionSet.add(actions.getString(i));
+        }
+        return actionSet;
     }
 
     private void notifyNotificationAction(Bundle bundle) {
-        String bundleString = convertJSON(bundle);
+        sendOrBuffer("notificationActionReceived", bundle, null);
+    }
 
+    /**
+     * Event payload for a notification: the notification itself as a map when JS opted into
+     * structured events, otherwise serialized to JSON under "dataJSON".
+     */
+    private WritableMap toEventParams(Bundle bundle) {
         WritableMap params = Arguments.createMap();
-        params.putString("dataJSON", bundleString);
-
-        sendEvent("notificationActionReceived", params);
+        if (mStructuredEvents) {
+            params.putMap("notification", RNPushNotificationBundleConverter.fromNotification(bundle));
+        } else {
+            params.putString("dataJSON", RNPushNotificationBundleConverter.toJson(bundle));
+        }
+        return params;
     }
 
-    private String convertJSON(Bundle bundle) {
-        JSONObject json = new JSONObject();
-        Set<String> keys = bundle.keySet();
-        for (String key : keys) {
+    private WritableMap toEventParams(String json) {
+        WritableMap params = Arguments.createMap();
+        if (mStructuredEvents) {
             try {
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-                    json.put(key, JSONObject.wrap(bundle.get(key)));
-                } else {
-                    json.put(key, bundle.get(key));
-                }
+                params.putMap("notification", RNPushNotificationBundleConverter.fromNotificationJson(json));
+                return params;
             } catch (JSONException e) {
-                return null;
+                Log.e("RNPushNotification", "Could not read a buffered event", e);
             }
         }
-        return json.toString();
+        params.putString("dataJSON", json);
+        return params;
+    }
+
+    /**
+     * Send notifications to JS as maps rather than JSON strings.
+     */
+    @ReactMethod
+    public void setStructuredEvents(boolean structuredEvents) {
+        mStructuredEvents = structuredEvents;
+    }
+
+    /**
+     * Deliver events in batches: buffer them for up to options.interval milliseconds, or
+     * options.maxSize events, then emit them together. An interval of 0 turns batching off.
+     */
+    @ReactMethod
+    public void configureEventBatching(ReadableMap options) {
+        long interval = options.hasKey("interval") ? (long) options.getDouble("interval") : 0;
+        int maxSize = options.hasKey("maxSize") ? options.getInt("maxSize") : 0;
+        mEventEmitter.setBatching(interval, maxSize);
+    }
+
+    /**
+     * Start sending events to JS, first replaying in one batch those it missed while
+     * it was not running or not listening yet.
+     */
+    @ReactMethod
+    public void replayPendingEvents() {
+        mEventBuffer.attach(new RNPushNotificationEventBuffer.ReplayCallback() {
+            @Override
+            public void onReplay(List<RNPushNotificationStore.Event> events) {
+                List<String> names = new ArrayList<>(events.size());
+                List<WritableMap> params = new ArrayList<>(events.size());
+                for (RNPushNotificationStore.Event event : events) {
+                    names.add(event.name);
+                    params.add(toEventParams(event.payload));
+                }
+                mEventEmitter.emitBatch(names, params);
+            }
+        });
+    }
+
+    /**
+     * How many undelivered events to keep for JS, options.capacity, and for how long,
+     * options.ttl in milliseconds.
+     */
+    @ReactMethod
+    public void configureEventBuffer(ReadableMap options) {
+        if (options.hasKey("capacity")) {
+            mRNPushNotificationHelper.getConfig().setEventBufferCapacity(options.getInt("capacity"));
+        }
+        if (options.hasKey("ttl")) {
+            mRNPushNotificationHelper.getConfig().setEventBufferTtl((long) options.getDouble("ttl"));
+        }
     }
 
     @ReactMethod
     public void requestPermissions() {
-        Intent GCMService = new Intent(mReactContext, RNPushNotificationRegistrationService.class);
+        String cachedToken = RNPushNotificationRegistration.getInstance(mReactContext).getCachedToken();
+        if (cachedToken != null) {
+            notifyRegistration(cachedToken);
+            return;
+        }
 
-        mReactContext.startService(GCMService);
+        RNPushNotificationRegistrationService.enqueue(mReactContext);
     }
 
     @ReactMethod
@@ -188,6 +302,22 @@ public class RNPushNotification extends ReactContextBaseJavaModule {
         mRNPushNotificationHelper.sendNotification(bundle);
     }
 
+    @ReactMethod
+    public void updateNotification(ReadableMap details, Promise promise) {
+        Bundle bundle = Arguments.toBundle(details);
+        if ( bundle.getString("id") == null ) {
+            Log.i("ReactNotification", "Notification id should a String");
+            promise.reject("E_INVALID_ID", "Notification id should a String");
+            return;
+        }
+        String error = mRNPushNotificationHelper.updateNotification(bundle);
+        if (error != null) {
+            promise.reject("E_NOT_UPDATED", error);
+        } else {
+            promise.resolve(null);
+        }
+    }
+
     @ReactMethod
     public void scheduleLocalNotification(ReadableMap details) {
         Bundle bundle = Arguments.toBundle(details);
@@ -203,25 +333,84 @@ public class RNPushNotification extends ReactContextBaseJavaModule {
         mRNPushNotificationHelper.sendNotificationScheduled(bundle);
     }
 
+    @ReactMethod
+    public void scheduleLocalNotifications(ReadableArray detailsArray, Promise promise) {
+        int size = detailsArray.size();
+        List<Bundle> bundles = new ArrayList<>(size);
+        String[] errors = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            Bundle bundle = Arguments.toBundle(detailsArray.getMap(i));
+            // If notification ID is an Int, reject it
+            if ( bundle.getString("id") == null && bundle.getInt("id") != 0) {
+                errors[i] = "Notification id should a String";
+                bundles.add(null);
+                continue;
+            }
+            // If notification ID is not provided by the user, generate one at random
+            if ( bundle.getString("id") == null ) {
+                bundle.putString("id", String.valueOf(mRandomNumberGenerator.nextInt()));
+            }
+            bundles.add(bundle);
+        }
+
+        List<Bundle> valid = new ArrayList<>(size);
+        for (Bundle bundle : bundles) {
+            if (bundle != null) {
+                valid.add(bundle);
+            }
+        }
+        Iterator<String> scheduleErrors = mRNPushNotificationHelper.sendNotificationsScheduled(valid).iterator();
+
+        WritableArray results = Arguments.createArray();
+        for (int i = 0; i < size; i++) {
+            Bundle bundle = bundles.get(i);
+            String error = bundle == null ? errors[i] : scheduleErrors.next();
+
+            WritableMap result = Arguments.createMap();
+            if (bundle != null) {
+                result.putString("id", bundle.getString("id"));
+            }
+            result.putBoolean("scheduled", error == null);
+            if (error != null) {
+                result.putString("error", error);
+            }
+            results.pushMap(result);
+        }
+        promise.resolve(results);
+    }
+
     @ReactMethod
     public void getInitialNotification(Promise promise) {
-        WritableMap params = Arguments.createMap();
         Activity activity = getCurrentActivity();
         if (activity != null) {
             Intent intent = activity.getIntent();
             Bundle bundle = intent.getBundleExtra("notification");
             if (bundle != null) {
                 bundle.putBoolean("foreground", false);
-                String bundleString = convertJSON(bundle);
-                params.putString("dataJSON", bundleString);
+                promise.resolve(toEventParams(bundle));
+                return;
             }
         }
-        promise.resolve(params);
+        promise.resolve(Arguments.createMap());
     }
 
     @ReactMethod
     public void cancelLocalNotifications(ReadableMap details) {
         Bundle bundle = Arguments.toBundle(details);
+        // Without an id, cancel every notification with the given tag, group or cancel category.
+        if (!bundle.containsKey("id")) {
+            if (bundle.getString("tag") != null) {
+                mRNPushNotificationHelper.cancelByTag(bundle.getString("tag"));
+            } else if (bundle.getString("group") != null) {
+                mRNPushNotificationHelper.cancelByGroup(bundle.getString("group"));
+            } else if (bundle.getString("cancelCategory") != null) {
+                mRNPushNotificationHelper.cancelByCancelCategory(bundle.getString("cancelCategory"));
+            } else {
+                Log.e("RNPushNotification", "No id, tag, group or cancelCategory given to cancel notifications");
+            }
+            return;
+        }
         // If notification ID is an Int, log an error
         if ( bundle.getString("id") == null && bundle.getInt("id") != 0) {
             Log.i("ReactNotification", "Notification id should a String");
@@ -231,8 +420,89 @@ public class RNPushNotification extends ReactContextBaseJavaModule {
         mRNPushNotificationHelper.cancelNotification(bundle);
     }
 
+    @ReactMethod
+    public void configureScheduler(ReadableMap options) {
+        if (options.hasKey("deliveryWindow")) {
+            mRNPushNotificationHelper.getConfig().setDeliveryWindow((long) options.getDouble("deliveryWindow"));
+        }
+        if (options.hasKey("tolerance")) {
+            mRNPushNotificationHelper.getConfig().setTolerance((long) options.getDouble("tolerance"));
+        }
+        if (options.hasKey("mode")) {
+            String mode = options.getString("mode");
+            if (RNPushNotificationConfig.SCHEDULER_PER_NOTIFICATION.equals(mode) ||
+                    RNPushNotificationConfig.SCHEDULER_SINGLE_ALARM.equals(mode)) {
+                mRNPushNotificationHelper.setSchedulerMode(mode);
+            } else {
+                Log.e("RNPushNotification", "Unknown scheduler mode " + mode);
+            }
+        }
+    }
+
+    /**
+     * Snapshot of the pipeline metrics, along with the store size, executor queue depth,
+     * push admission counters and last boot restoration. Also logged.
+     */
+    @ReactMethod
+    public void getMetrics(Promise promise) {
+        RNPushNotificationMetrics metrics = RNPushNotificationMetrics.getInstance();
+        Bundle snapshot = metrics.getSnapshot();
+        snapshot.putLong("storeSize", RNPushNotificationStore.getInstance(mReactContext).size());
+        snapshot.putInt("queueDepth", RNPushNotificationExecutor.getInstance().getQueueDepth());
+        snapshot.putBundle("admission", RNPushNotificationAdmission.getInstance(mReactContext).getStats());
+        snapshot.putBundle("bootRestore", mRNPushNotificationHelper.getConfig().getBootRestoreStats());
+
+        Log.i("RNPushNotification", "Metrics:\n" + metrics.describe()
+                + "\nstoreSize=" + snapshot.getLong("storeSize") + " queueDepth=" + snapshot.getInt("queueDepth"));
+        promise.resolve(RNPushNotificationBundleConverter.fromBundle(snapshot));
+    }
+
+    @ReactMethod
+    public void configurePushAdmission(ReadableMap options) {
+        RNPushNotificationConfig config = mRNPushNotificationHelper.getConfig();
+        if (options.hasKey("dedupeWindow")) {
+            config.setDedupeWindow((long) options.getDouble("dedupeWindow"));
+        }
+        if (options.hasKey("dedupeById")) {
+            config.setDedupeById(options.getBoolean("dedupeById"));
+        }
+        if (options.hasKey("appRate") || options.hasKey("appBurst")) {
+            config.setAppRateLimit(
+                    options.hasKey("appRate") ? (float) options.getDouble("appRate") : config.getAppRate(),
+                    options.hasKey("appBurst") ? options.getInt("appBurst") : config.getAppBurst());
+        }
+        if (options.hasKey("channelRate") || options.hasKey("channelBurst")) {
+            config.setChannelRateLimit(
+                    options.hasKey("channelRate") ? (float) options.getDouble("channelRate") : config.getChannelRate(),
+                    options.hasKey("channelBurst") ? options.getInt("channelBurst") : config.getChannelBurst());
+        }
+    }
+
+    @ReactMethod
+    public void createChannel(ReadableMap details, Promise promise) {
+        promise.resolve(mRNPushNotificationHelper.getChannels().createChannel(Arguments.toBundle(details)));
+    }
+
+    @ReactMethod
+    public void deleteChannel(String channelId) {
+        mRNPushNotificationHelper.getChannels().deleteChannel(channelId);
+    }
+
     @ReactMethod
     public void registerNotificationActions(ReadableArray actions) {
-        registerNotificationsReceiveNotificationActions(actions);
+        mActions.add(toActionSet(actions));
+    }
+
+    @ReactMethod
+    public void unregisterNotificationActions(ReadableArray actions) {
+        mActions.remove(toActionSet(actions));
+    }
+
+    /**
+     * Register exactly these actions, dropping any other registered before.
+     */
+    @ReactMethod
+    public void setNotificationActions(ReadableArray actions) {
+        mActions.replace(toActionSet(actions));
     }    
 }
@@ -0,0 +1,22 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.Context;
+import android.os.Bundle;
+
+/**
+ * Handles a notification action natively, without starting the JS runtime.
+ *
+ * Register handlers with {@link RNPushNotificationActionReceiver#registerHandler} from
+ * Application.onCreate, so they are in place when a tap starts the process.
+ */
+public interface RNPushNotificationActionHandler {
+    /**
+     * Called on a background thread when the action is tapped. The notification is not
+     * dismissed for you: cancel or update it, for example through
+     * RNPushNotificationHelper.getInstance(context).
+     *
+     * @param notification the notification, its "action" field is the tapped action
+     * @return true when the action was fully handled, false to also pass it on to JS
+     */
+    boolean onAction(Context context, Bundle notification);
+}
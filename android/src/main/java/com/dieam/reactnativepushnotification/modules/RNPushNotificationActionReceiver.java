@@ -0,0 +1,90 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.app.NotificationManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.util.Log;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Receives the taps on notification action buttons, which target it explicitly.
+ *
+ * Actions with a native handler are handled in the background without involving JS.
+ * Taps on actions JS registered dismiss the notification and are handed over to the module
+ * through RNPushNotificationEventBus. When no module is running they are kept for JS and the
+ * notification stays, since it is not known yet whether JS handles the action.
+ */
+public class RNPushNotificationActionReceiver extends BroadcastReceiver {
+    public static final String ACTION_RECEIVED = "RNPushNotificationActionReceived";
+
+    private static final Map<String, RNPushNotificationActionHandler> sHandlers = new ConcurrentHashMap<>();
+
+    /**
+     * Handle taps on action natively. Replaces the handler previously registered for it.
+     */
+    public static void registerHandler(String action, RNPushNotificationActionHandler handler) {
+        sHandlers.put(action, handler);
+    }
+
+    public static void unregisterHandler(String action) {
+        sHandlers.remove(action);
+    }
+
+    @Override
+    public void onReceive(final Context context, Intent intent) {
+        final Bundle bundle = intent.getBundleExtra("notification");
+        if (bundle == null) {
+            return;
+        }
+
+        final RNPushNotificationActionHandler handler = sHandlers.get(bundle.getString("action"));
+        if (handler != null) {
+            RNPushNotificationExecutor.getInstance().execute(bundle.getString("id"), new Runnable() {
+                @Override
+                public void run() {
+                    boolean handled = false;
+                    try {
+                        handled = handler.onAction(context, bundle);
+                    } catch (Exception e) {
+                        Log.e("RNPushNotification", "Action handler for " + bundle.getString("action") + " failed", e);
+                    }
+                    if (!handled) {
+                        dispatchToJs(context, bundle);
+                    }
+                }
+            }, goAsync());
+            return;
+        }
+
+        dispatchToJs(context, bundle);
+    }
+
+    private static void dispatchToJs(Context context, Bundle bundle) {
+        RNPushNotificationEventBuffer eventBuffer = RNPushNotificationEventBuffer.getInstance(context);
+        if (!eventBuffer.hasModule()) {
+            eventBuffer.add("notificationActionReceived", RNPushNotificationBundleConverter.toJson(bundle));
+            return;
+        }
+        if (!RNPushNotificationActionRegistry.getInstance().contains(bundle.getString("action"))) {
+            // Nothing handles this action, leave the notification as it is.
+            return;
+        }
+
+        // Dismiss the notification popup.
+        try {
+            NotificationManager manager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+            int notificationID = Integer.parseInt(bundle.getString("id"));
+            manager.cancel(bundle.getString("tag"), notificationID);
+        } catch (NumberFormatException e) {
+            Log.w("RNPushNotification", "Action of a notification without a valid id", e);
+        }
+
+        Intent actionIntent = new Intent(ACTION_RECEIVED);
+        actionIntent.putExtra("notification", bundle);
+        RNPushNotificationEventBus.send(context, actionIntent);
+    }
+}
@@ -0,0 +1,48 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The notification actions JS registered, looked up on every action tap.
+ *
+ * Shared by the module and RNPushNotificationActionReceiver, which only dismisses taps on
+ * registered actions. Lookups are lock free, so dispatching a tap never waits on a registration.
+ */
+public class RNPushNotificationActionRegistry {
+    private static RNPushNotificationActionRegistry sInstance;
+
+    private final Set<String> mActions = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    public static synchronized RNPushNotificationActionRegistry getInstance() {
+        if (sInstance == null) {
+            sInstance = new RNPushNotificationActionRegistry();
+        }
+        return sInstance;
+    }
+
+    private RNPushNotificationActionRegistry() {
+    }
+
+    public boolean contains(String action) {
+        return action != null && mActions.contains(action);
+    }
+
+    public synchronized void add(Collection<String> actions) {
+        mActions.addAll(actions);
+    }
+
+    public synchronized void remove(Collection<String> actions) {
+        mActions.removeAll(actions);
+    }
+
+    /**
+     * Keep exactly these actions. Actions in both sets stay registered throughout.
+     */
+    public synchronized void replace(Collection<String> actions) {
+        mActions.retainAll(actions);
+        mActions.addAll(actions);
+    }
+}
@@ -0,0 +1,249 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission stage in front of posting incoming pushes.
+ *
+ * Pushes already seen within the dedupe window, by GCM message id or, when enabled, by id
+ * and tag, are dropped. Posting is rate limited with token buckets, one for the app and
+ * one per channel, so Android does not throttle the app and silently drop notifications.
+ * Posts over the limit wait on an alarm of their own, carrying the whole push, for when a
+ * token is available. They survive the process being killed and stay apart from the
+ * scheduled local notifications. A deferred post is replaced by a later one for the same
+ * notification. Counters record what happened to every push.
+ */
+public class RNPushNotificationAdmission {
+    private static final String TAG = "RNPushNotification";
+
+    private static final int MAX_SEEN = 256;
+    private static final int MAX_DEFERRED = 100;
+    private static final String DEFAULT_CHANNEL = "default";
+    // Intent extra holding the key a deferred post waits under.
+    private static final String EXTRA_DEFERRED_KEY = "RNPushNotificationDeferredKey";
+
+    private static RNPushNotificationAdmission sInstance;
+
+    private final Context mContext;
+    private final RNPushNotificationHelper mHelper;
+    private final RNPushNotificationConfig mConfig;
+
+    // Access ordered, so the least recently seen keys are evicted first.
+    private final LinkedHashMap<String, Long> mSeen = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_SEEN;
+        }
+    };
+    // Fire dates of the deferred posts still waiting, by tag or id.
+    private final Map<String, Long> mDeferred = new HashMap<>();
+    private final Map<String, TokenBucket> mChannelBuckets = new HashMap<>();
+    private TokenBucket mAppBucket;
+
+    private final AtomicLong mAdmitted = new AtomicLong();
+    private final AtomicLong mDuplicates = new AtomicLong();
+    private final AtomicLong mDeferredCount = new AtomicLong();
+    private final AtomicLong mCoalesced = new AtomicLong();
+    private final AtomicLong mDropped = new AtomicLong();
+
+    public static synchronized RNPushNotificationAdmission getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new RNPushNotificationAdmission(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private RNPushNotificationAdmission(Context context) {
+        mContext = context;
+        mHelper = RNPushNotificationHelper.getInstance(context);
+        mConfig = mHelper.getConfig();
+    }
+
+    /**
+     * Whether the push was already received within the dedupe window. Pushes without a
+     * GCM message id, or an id when deduping by id, are never duplicates.
+     */
+    public boolean isDuplicate(Bundle bundle) {
+        String key = getDedupeKey(bundle);
+        if (key == null) {
+            return false;
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        synchronized (mSeen) {
+            // The window runs from the first time the push was seen, duplicates do not extend it.
+            Long seenAt = mSeen.get(key);
+            if (seenAt != null && now - seenAt < mConfig.getDedupeWindow()) {
+                mDuplicates.incrementAndGet();
+                return true;
+            }
+            mSeen.put(key, now);
+        }
+        return false;
+    }
+
+    /**
+     * Post the notification now if the rate limits allow it, or later when they do.
+     */
+    public void submit(Bundle bundle) {
+        long delay = acquire(bundle.getString("channelId"));
+        if (delay <= 0) {
+            mAdmitted.incrementAndGet();
+            mHelper.sendNotification(bundle);
+            return;
+        }
+        defer(bundle, delay);
+    }
+
+    /**
+     * Post a deferred push once its alarm went off.
+     */
+    public void postDeferred(Bundle bundle) {
+        String key = bundle.getString(EXTRA_DEFERRED_KEY);
+        bundle.remove(EXTRA_DEFERRED_KEY);
+        synchronized (mDeferred) {
+            mDeferred.remove(key);
+        }
+        mHelper.sendNotification(bundle);
+    }
+
+    /**
+     * Counters of admitted, duplicate, deferred, coalesced and dropped pushes since the process started.
+     */
+    public Bundle getStats() {
+        Bundle stats = new Bundle();
+        stats.putLong("admitted", mAdmitted.get());
+        stats.putLong("duplicates", mDuplicates.get());
+        stats.putLong("deferred", mDeferredCount.get());
+        stats.putLong("coalesced", mCoalesced.get());
+        stats.putLong("dropped", mDropped.get());
+        return stats;
+    }
+
+    private String getDedupeKey(Bundle bundle) {
+        String id = bundle.getString("id");
+        if (id != null && mConfig.isDedupeById()) {
+            return id + "/" + bundle.getString("tag");
+        }
+        String messageId = bundle.getString("google.message_id");
+        return messageId != null ? "gcm/" + messageId : null;
+    }
+
+    /**
+     * Take a token from the app bucket and from the channel's, and return how many
+     * milliseconds to wait until both are due. Tokens are taken ahead of time, so deferred
+     * posts are spread out at the rate instead of all waiting for the same token.
+     */
+    private synchronized long acquire(String channelId) {
+        float rate = mConfig.getAppRate();
+        int burst = mConfig.getAppBurst();
+        if (mAppBucket == null || mAppBucket.mRate != rate || mAppBucket.mBurst != burst) {
+            mAppBucket = new TokenBucket(rate, burst);
+        }
+
+        String channel = channelId != null ? channelId : DEFAULT_CHANNEL;
+        rate = mConfig.getChannelRate();
+        burst = mConfig.getChannelBurst();
+        TokenBucket channelBucket = mChannelBuckets.get(channel);
+        if (channelBucket == null || channelBucket.mRate != rate || channelBucket.mBurst != burst) {
+            channelBucket = new TokenBucket(rate, burst);
+            mChannelBuckets.put(channel, channelBucket);
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        return Math.max(mAppBucket.take(now), channelBucket.take(now));
+    }
+
+    /**
+     * Post the push delay milliseconds from now, or in place of the deferred post waiting
+     * for the same tag or id.
+     */
+    private void defer(Bundle bundle, long delay) {
+        String tag = bundle.getString("tag");
+        String key = tag != null ? "tag/" + tag : "id/" + bundle.getString("id");
+        long now = System.currentTimeMillis();
+        long fireDate = now + delay;
+
+        synchronized (mDeferred) {
+            Iterator<Long> iterator = mDeferred.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() <= now) {
+                    iterator.remove();
+                }
+            }
+
+            Long previous = mDeferred.get(key);
+            if (previous != null) {
+                // Already waiting for a token: post the latest content then instead.
+                fireDate = previous;
+                mCoalesced.incrementAndGet();
+            } else if (mDeferred.size() >= MAX_DEFERRED) {
+                mDropped.incrementAndGet();
+                Log.w(TAG, "Too many notifications waiting to be posted, dropping " + bundle.getString("id"));
+                return;
+            } else {
+                mDeferredCount.incrementAndGet();
+            }
+            mDeferred.put(key, fireDate);
+        }
+
+        mHelper.setAlarm(fireDate, 0, getDeferredIntent(key, bundle));
+    }
+
+    /**
+     * The alarm intent of the post deferred under key. There is one per key, so a later
+     * push replaces the one waiting along with its alarm.
+     */
+    private PendingIntent getDeferredIntent(String key, Bundle bundle) {
+        Intent intent = new Intent(mContext, RNPushNotificationPublisher.class);
+        intent.setAction(RNPushNotificationPublisher.ACTION_POST_DEFERRED);
+        intent.setData(Uri.fromParts("rnpushnotification", key, null));
+        intent.putExtras(bundle);
+        intent.putExtra(EXTRA_DEFERRED_KEY, key);
+        return PendingIntent.getBroadcast(mContext, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    private static class TokenBucket {
+        final float mRate;
+        final int mBurst;
+        double mTokens;
+        long mUpdatedAt = -1;
+
+        TokenBucket(float rate, int burst) {
+            mRate = rate;
+            mBurst = burst;
+            mTokens = burst;
+        }
+
+        /**
+         * Take a token and return the milliseconds until it is due, 0 when it is available
+         * now. A rate of 0 is no limit.
+         */
+        long take(long now) {
+            if (mRate <= 0) {
+                return 0;
+            }
+            if (mUpdatedAt >= 0) {
+                mTokens = Math.min(mBurst, mTokens + (now - mUpdatedAt) * mRate / 1000);
+            }
+            mUpdatedAt = now;
+            mTokens -= 1;
+            if (mTokens >= 0) {
+                return 0;
+            }
+            return (long) Math.ceil(-mTokens * 1000 / mRate);
+        }
+    }
+}
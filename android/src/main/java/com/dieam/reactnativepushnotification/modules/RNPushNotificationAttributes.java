@@ -6,7 +6,59 @@ import android.util.Log;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 public class RNPushNotificationAttributes {
+    /**
+     * Binary records start with this byte, legacy JSON records with '{'.
+     * Every field is written as a one byte header, holding the value type in the
+     * upper three bits and the interned key in the lower five, followed by the value.
+     */
+    private static final byte BINARY_VERSION = 1;
+
+    private static final int TYPE_STRING = 0;
+    private static final int TYPE_DOUBLE = 1;
+    private static final int TYPE_TRUE = 2;
+    private static final int TYPE_FALSE = 3;
+    private static final int TYPE_LONG = 4;
+
+    private static final int KEY_ID = 0;
+    private static final int KEY_MESSAGE = 1;
+    private static final int KEY_FIRE_DATE = 2;
+    private static final int KEY_TITLE = 3;
+    private static final int KEY_TICKER = 4;
+    private static final int KEY_AUTO_CANCEL = 5;
+    private static final int KEY_LARGE_ICON = 6;
+    private static final int KEY_SMALL_ICON = 7;
+    private static final int KEY_BIG_TEXT = 8;
+    private static final int KEY_SUB_TEXT = 9;
+    private static final int KEY_NUMBER = 10;
+    private static final int KEY_SOUND = 11;
+    private static final int KEY_COLOR = 12;
+    private static final int KEY_TAG = 13;
+    private static final int KEY_GROUP = 14;
+    private static final int KEY_PLAY_SOUND = 15;
+    private static final int KEY_VIBRATE = 16;
+    private static final int KEY_VIBRATION = 17;
+    private static final int KEY_ACTIONS = 18;
+    private static final int KEY_TOLERANCE = 19;
+    private static final int KEY_CHANNEL_ID = 20;
+    private static final int KEY_CANCEL_CATEGORY = 21;
+    private static final int KEY_EXTRAS = 22;
+
+    // Bundle keys of the fields above. The other keys of a notification, such as data and
+    // userInfo, are kept together in extras.
+    private static final Set<String> FIELD_KEYS = new HashSet<>(Arrays.asList("id", "message", "fireDate",
+            "title", "ticker", "autoCancel", "largeIcon", "smallIcon", "bigText", "subText", "number", "sound",
+            "color", "tag", "group", "playSound", "vibrate", "vibration", "actions", "tolerance", "channelId",
+            "cancelCategory"));
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     private String id;
     private String message;
     private double fireDate;
@@ -20,13 +72,23 @@ public class RNPushNotificationAttributes {
     private String number;
     private String sound;
     private String color;
+    private String tag;
+    private String group;
+    private boolean playSound;
+    private boolean vibrate;
+    private double vibration;
+    private String actions;
+    private double tolerance;
+    private String channelId;
+    private String cancelCategory;
+    private Bundle extras;
 
     public RNPushNotificationAttributes() {
 
     }
 
     public Bundle toBundle() {
-        Bundle bundle = new Bundle();
+        Bundle bundle = extras != null ? new Bundle(extras) : new Bundle();
         bundle.putString("id", id);
         bundle.putString("message", message);
         bundle.putDouble("fireDate", fireDate);
@@ -40,6 +102,23 @@ public class RNPushNotificationAttributes {
         bundle.putString("number", number);
         bundle.putString("sound", sound);
         bundle.putString("color", color);
+        if (tag != null) {
+            bundle.putString("tag", tag);
+        }
+        bundle.putString("group", group);
+        bundle.putBoolean("playSound", playSound);
+        bundle.putBoolean("vibrate", vibrate);
+        if (vibration != 0) {
+            bundle.putDouble("vibration", vibration);
+        }
+        bundle.putString("actions", actions);
+        if (tolerance != 0) {
+            bundle.putDouble("tolerance", tolerance);
+        }
+        bundle.putString("channelId", channelId);
+        if (cancelCategory != null) {
+            bundle.putString("cancelCategory", cancelCategory);
+        }
         return bundle;
     }
 
@@ -49,7 +128,7 @@ public class RNPushNotificationAttributes {
         fireDate = bundle.getDouble("fireDate");
         title = bundle.getString("title");
         ticker = bundle.getString("ticker");
-        autoCancel = bundle.getBoolean("autoCancel");
+        autoCancel = bundle.getBoolean("autoCancel", true);
         largeIcon = bundle.getString("largeIcon");
         smallIcon = bundle.getString("smallIcon");
         bigText = bundle.getString("bigText");
@@ -57,6 +136,23 @@ public class RNPushNotificationAttributes {
         number = bundle.getString("number");
         sound = bundle.getString("sound");
         color = bundle.getString("color");
+        tag = bundle.getString("tag");
+        group = bundle.getString("group");
+        playSound = bundle.getBoolean("playSound", true);
+        vibrate = bundle.getBoolean("vibrate", true);
+        vibration = bundle.getDouble("vibration");
+        actions = bundle.getString("actions");
+        tolerance = bundle.getDouble("tolerance");
+        channelId = bundle.getString("channelId");
+        cancelCategory = bundle.getString("cancelCategory");
+
+        extras = new Bundle(bundle);
+        for (String key : FIELD_KEYS) {
+            extras.remove(key);
+        }
+        if (extras.isEmpty()) {
+            extras = null;
+        }
     }
 
     public JSONObject toJson() {
@@ -75,6 +171,15 @@ public class RNPushNotificationAttributes {
             jsonObject.put("number", number);
             jsonObject.put("sound", sound);
             jsonObject.put("color", color);
+            jsonObject.put("tag", tag);
+            jsonObject.put("group", group);
+            jsonObject.put("playSound", playSound);
+            jsonObject.put("vibrate", vibrate);
+            jsonObject.put("vibration", vibration);
+            jsonObject.put("actions", actions);
+            jsonObject.put("tolerance", tolerance);
+            jsonObject.put("channelId", channelId);
+            jsonObject.put("cancelCategory", cancelCategory);
         } catch (JSONException e) {
             Log.e("RNPushNotification", "Exception while converting RNPushNotificationAttributes to " +
                     "JSON. Returning an empty object", e);
@@ -98,12 +203,215 @@ public class RNPushNotificationAttributes {
             number = jsonObject.has("number") ? jsonObject.getString("number") : null;
             sound = jsonObject.has("sound") ? jsonObject.getString("sound") : null;
             color = jsonObject.has("color") ? jsonObject.getString("color") : null;
+            tag = jsonObject.has("tag") ? jsonObject.getString("tag") : null;
+            group = jsonObject.has("group") ? jsonObject.getString("group") : null;
+            playSound = jsonObject.has("playSound") ? jsonObject.getBoolean("playSound") : true;
+            vibrate = jsonObject.has("vibrate") ? jsonObject.getBoolean("vibrate") : true;
+            vibration = jsonObject.has("vibration") ? jsonObject.getDouble("vibration") : 0.0;
+            actions = jsonObject.has("actions") ? jsonObject.getString("actions") : null;
+            tolerance = jsonObject.has("tolerance") ? jsonObject.getDouble("tolerance") : 0.0;
+            channelId = jsonObject.has("channelId") ? jsonObject.getString("channelId") : null;
+            cancelCategory = jsonObject.has("cancelCategory") ? jsonObject.getString("cancelCategory") : null;
         } catch (JSONException e) {
             Log.e("RNPushNotification", "Exception while initializing RNPushNotificationAttributes from " +
                     "JSON. Some fields may not be set", e);
         }
     }
 
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        out.write(BINARY_VERSION);
+        writeString(out, KEY_ID, id);
+        writeString(out, KEY_MESSAGE, message);
+        writeNumber(out, KEY_FIRE_DATE, fireDate);
+        writeString(out, KEY_TITLE, title);
+        writeString(out, KEY_TICKER, ticker);
+        writeBoolean(out, KEY_AUTO_CANCEL, autoCancel);
+        writeString(out, KEY_LARGE_ICON, largeIcon);
+        writeString(out, KEY_SMALL_ICON, smallIcon);
+        writeString(out, KEY_BIG_TEXT, bigText);
+        writeString(out, KEY_SUB_TEXT, subText);
+        writeString(out, KEY_NUMBER, number);
+        writeString(out, KEY_SOUND, sound);
+        writeString(out, KEY_COLOR, color);
+        writeString(out, KEY_TAG, tag);
+        writeString(out, KEY_GROUP, group);
+        writeBoolean(out, KEY_PLAY_SOUND, playSound);
+        writeBoolean(out, KEY_VIBRATE, vibrate);
+        if (vibration != 0) {
+            writeNumber(out, KEY_VIBRATION, vibration);
+        }
+        writeString(out, KEY_ACTIONS, actions);
+        if (tolerance != 0) {
+            writeNumber(out, KEY_TOLERANCE, tolerance);
+        }
+        writeString(out, KEY_CHANNEL_ID, channelId);
+        writeString(out, KEY_CANCEL_CATEGORY, cancelCategory);
+        if (extras != null) {
+            try {
+                writeString(out, KEY_EXTRAS, RNPushNotificationBundleConverter.toJsonObject(extras).toString());
+            } catch (JSONException e) {
+                Log.e("RNPushNotification", "Exception while converting the extras of RNPushNotificationAttributes " +
+                        "to JSON. Leaving them out", e);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Read a record written by {@link #toBytes()}, or a legacy record written by {@link #toJson()}.
+     *
+     * @throws IllegalArgumentException when data is not such a record or has no id
+     */
+    public void fromBytes(byte[] data) {
+        if (data != null && data.length > 0 && data[0] == '{') {
+            try {
+                fromJson(new JSONObject(new String(data, UTF_8)));
+            } catch (JSONException e) {
+                throw new IllegalArgumentException("Invalid legacy JSON RNPushNotificationAttributes record", e);
+            }
+            requireId();
+            return;
+        }
+        if (data == null || data.length == 0 || data[0] != BINARY_VERSION) {
+            throw new IllegalArgumentException("Unsupported RNPushNotificationAttributes record version");
+        }
+
+        autoCancel = true;
+        playSound = true;
+        vibrate = true;
+        int[] position = new int[] { 1 };
+        try {
+            while (position[0] < data.length) {
+                int header = data[position[0]++] & 0xFF;
+                int type = header >>> 5;
+                int key = header & 0x1F;
+                Object value = readValue(data, position, type);
+                switch (key) {
+                    case KEY_ID: id = (String) value; break;
+                    case KEY_MESSAGE: message = (String) value; break;
+                    case KEY_FIRE_DATE: fireDate = ((Number) value).doubleValue(); break;
+                    case KEY_TITLE: title = (String) value; break;
+                    case KEY_TICKER: ticker = (String) value; break;
+                    case KEY_AUTO_CANCEL: autoCancel = (Boolean) value; break;
+                    case KEY_LARGE_ICON: largeIcon = (String) value; break;
+                    case KEY_SMALL_ICON: smallIcon = (String) value; break;
+                    case KEY_BIG_TEXT: bigText = (String) value; break;
+                    case KEY_SUB_TEXT: subText = (String) value; break;
+                    case KEY_NUMBER: number = (String) value; break;
+                    case KEY_SOUND: sound = (String) value; break;
+                    case KEY_COLOR: color = (String) value; break;
+                    case KEY_TAG: tag = (String) value; break;
+                    case KEY_GROUP: group = (String) value; break;
+                    case KEY_PLAY_SOUND: playSound = (Boolean) value; break;
+                    case KEY_VIBRATE: vibrate = (Boolean) value; break;
+                    case KEY_VIBRATION: vibration = ((Number) value).doubleValue(); break;
+                    case KEY_ACTIONS: actions = (String) value; break;
+                    case KEY_TOLERANCE: tolerance = ((Number) value).doubleValue(); break;
+                    case KEY_CHANNEL_ID: channelId = (String) value; break;
+                    case KEY_CANCEL_CATEGORY: cancelCategory = (String) value; break;
+                    case KEY_EXTRAS: extras = readExtras((String) value); break;
+                    default:
+                        // Written by a newer version, skip it.
+                        break;
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid binary RNPushNotificationAttributes record", e);
+        }
+        requireId();
+    }
+
+    private static Bundle readExtras(String json) {
+        try {
+            return RNPushNotificationBundleConverter.toBundle(new JSONObject(json));
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("Invalid extras in RNPushNotificationAttributes record", e);
+        }
+    }
+
+    private void requireId() {
+        if (id == null) {
+            throw new IllegalArgumentException("RNPushNotificationAttributes record without an id");
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, int key, String value) {
+        if (value == null) {
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        out.write(TYPE_STRING << 5 | key);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeBoolean(ByteArrayOutputStream out, int key, boolean value) {
+        out.write((value ? TYPE_TRUE : TYPE_FALSE) << 5 | key);
+    }
+
+    private static void writeNumber(ByteArrayOutputStream out, int key, double value) {
+        long millis = (long) value;
+        if (millis == value) {
+            out.write(TYPE_LONG << 5 | key);
+            writeVarLong(out, millis << 1 ^ millis >> 63);
+        } else {
+            long bits = Double.doubleToLongBits(value);
+            out.write(TYPE_DOUBLE << 5 | key);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (bits >>> shift));
+            }
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] data, int[] position) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static Object readValue(byte[] data, int[] position, int type) {
+        switch (type) {
+            case TYPE_STRING: {
+                int length = (int) readVarLong(data, position);
+                String value = new String(data, position[0], length, UTF_8);
+                position[0] += length;
+                return value;
+            }
+            case TYPE_DOUBLE: {
+                long bits = 0;
+                for (int i = 0; i < 8; i++) {
+                    bits = bits << 8 | (data[position[0]++] & 0xFF);
+                }
+                return Double.longBitsToDouble(bits);
+            }
+            case TYPE_TRUE:
+                return Boolean.TRUE;
+            case TYPE_FALSE:
+                return Boolean.FALSE;
+            case TYPE_LONG: {
+                long zigzag = readVarLong(data, position);
+                return zigzag >>> 1 ^ -(zigzag & 1);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown field type " + type);
+        }
+    }
+
     public String getId() {
         return id;
     }
@@ -155,4 +463,54 @@ public class RNPushNotificationAttributes {
     public String getMessage() {
         return message;
     }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public boolean isPlaySound() {
+        return playSound;
+    }
+
+    public boolean isVibrate() {
+        return vibrate;
+    }
+
+    public double getVibration() {
+        return vibration;
+    }
+
+    public String getActions() {
+        return actions;
+    }
+
+    /**
+     * How late, in milliseconds after fireDate, the notification may be delivered
+     * so that it can share a wakeup with others.
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    /**
+     * Category of the app's own, to cancel notifications by. Unrelated to the iOS category.
+     */
+    public String getCancelCategory() {
+        return cancelCategory;
+    }
+
+    /**
+     * The other fields of the notification, such as data and userInfo, or null when it has none.
+     */
+    public Bundle getExtras() {
+        return extras;
+    }
 }
@@ -0,0 +1,129 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.v4.app.JobIntentService;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Restores scheduled notifications after a reboot, as a background job so large
+ * schedules are not bound by the broadcast time limit.
+ *
+ * The store is streamed in chunks. Alarms for the notifications still to come are set
+ * on the executor lanes in parallel, while the ones that came due while the device was
+ * off are removed and shown as a single summary.
+ */
+public class RNPushNotificationBootRestoreService extends JobIntentService {
+    private static final String TAG = "RNPushNotification";
+
+    private static final int JOB_ID = 0x524e504e;
+    private static final int CHUNK_SIZE = 100;
+
+    public static void enqueue(Context context) {
+        enqueueWork(context, RNPushNotificationBootRestoreService.class, JOB_ID, new Intent());
+    }
+
+    @Override
+    protected void onHandleWork(Intent intent) {
+        long startedAt = SystemClock.elapsedRealtime();
+
+        RNPushNotificationStore store = RNPushNotificationStore.getInstance(this);
+        final RNPushNotificationHelper rnPushNotificationHelper = RNPushNotificationHelper.getInstance(this);
+        boolean singleAlarm = rnPushNotificationHelper.getConfig().isSingleAlarmScheduler();
+
+        final AtomicInteger scheduled = new AtomicInteger();
+        List<CountDownLatch> pending = new ArrayList<>();
+        List<String> overdueLines = new ArrayList<>();
+        Bundle firstOverdue = null;
+        int overdue = 0;
+        int chunks = 0;
+
+        long position = 0;
+        while (position >= 0) {
+            List<RNPushNotificationAttributes> chunk = new ArrayList<>(CHUNK_SIZE);
+            position = store.readChunk(position, CHUNK_SIZE, chunk);
+            chunks++;
+
+            long now = System.currentTimeMillis();
+            List<String> overdueIds = new ArrayList<>();
+            final List<Bundle> future = new ArrayList<>(chunk.size());
+            for (RNPushNotificationAttributes notificationAttributes : chunk) {
+                if (notificationAttributes.getFireDate() < now) {
+                    overdueIds.add(notificationAttributes.getId());
+                    if (firstOverdue == null) {
+                        firstOverdue = notificationAttributes.toBundle();
+                    }
+                    if (overdueLines.size() < RNPushNotificationHelper.MAX_SUMMARY_LINES) {
+                        overdueLines.add(notificationAttributes.getMessage());
+                    }
+                    overdue++;
+                } else {
+                    future.add(notificationAttributes.toBundle());
+                }
+            }
+            store.removeAll(overdueIds);
+
+            if (singleAlarm) {
+                // The single alarm is armed once, for the earliest of them all, below.
+                scheduled.addAndGet(future.size());
+            } else if (!future.isEmpty()) {
+                final CountDownLatch done = new CountDownLatch(1);
+                pending.add(done);
+                Runnable restore = new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (Bundle bundle : future) {
+                                try {
+                                    rnPushNotificationHelper.sendNotificationScheduledCore(bundle);
+                                    scheduled.incrementAndGet();
+                                } catch (Exception e) {
+                                    Log.e(TAG, "Failed to restore notification " + bundle.getString("id"), e);
+                                }
+                            }
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                };
+                if (!RNPushNotificationExecutor.getInstance().execute("boot-" + chunks, restore)) {
+                    // The lane is full, restore this chunk on the job's own thread.
+                    restore.run();
+                }
+            }
+        }
+
+        for (CountDownLatch done : pending) {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        if (singleAlarm) {
+            // Alarms do not survive a reboot, arm it again whatever was armed before.
+            rnPushNotificationHelper.rearmSingleAlarm();
+        }
+
+        if (overdue == 1) {
+            rnPushNotificationHelper.sendNotification(firstOverdue);
+        } else if (overdue > 1) {
+            rnPushNotificationHelper.sendOverdueSummary(overdue, overdueLines);
+        }
+
+        long duration = SystemClock.elapsedRealtime() - startedAt;
+        rnPushNotificationHelper.getConfig().setBootRestoreStats(System.currentTimeMillis(), duration,
+                scheduled.get(), overdue);
+        Log.i(TAG, "Restored " + scheduled.get() + " scheduled notifications and " + overdue +
+                " overdue ones in " + chunks + " chunks, " + duration + "ms");
+    }
+}
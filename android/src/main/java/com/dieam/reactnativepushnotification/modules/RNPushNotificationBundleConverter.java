@@ -0,0 +1,279 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.os.Build;
+import android.os.Bundle;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Converts notification Bundles straight to bridge maps, so events can reach JS
+ * without going through a JSON string on either side.
+ */
+public class RNPushNotificationBundleConverter {
+
+    /**
+     * Convert a Bundle, nested Bundles, arrays and lists included.
+     */
+    public static WritableMap fromBundle(Bundle bundle) {
+        WritableMap map = Arguments.createMap();
+        for (String key : bundle.keySet()) {
+            putValue(map, key, bundle.get(key));
+        }
+        return map;
+    }
+
+    /**
+     * Convert a notification. Its "data" field, which pushes carry as a JSON string,
+     * is expanded into a map as well.
+     */
+    public static WritableMap fromNotification(Bundle bundle) {
+        WritableMap map = fromBundle(bundle);
+        Object data = bundle.get("data");
+        if (data instanceof String) {
+            expandData(map, (String) data);
+        }
+        return map;
+    }
+
+    /**
+     * Convert a notification serialized to JSON, expanding its "data" field the same way.
+     */
+    public static WritableMap fromNotificationJson(String json) throws JSONException {
+        JSONObject notification = new JSONObject(json);
+        WritableMap map = fromJson(notification);
+        Object data = notification.opt("data");
+        if (data instanceof String) {
+            expandData(map, (String) data);
+        }
+        return map;
+    }
+
+    private static void expandData(WritableMap map, String data) {
+        if (!data.startsWith("{")) {
+            return;
+        }
+        try {
+            map.putMap("data", fromJson(new JSONObject(data)));
+        } catch (JSONException e) {
+            // Not JSON after all, leave it as the string it is.
+        }
+    }
+
+    /**
+     * Serialize a Bundle to JSON, or null when one of its values cannot be.
+     */
+    public static String toJson(Bundle bundle) {
+        JSONObject json = new JSONObject();
+        Set<String> keys = bundle.keySet();
+        for (String key : keys) {
+            try {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                    json.put(key, JSONObject.wrap(bundle.get(key)));
+                } else {
+                    json.put(key, bundle.get(key));
+                }
+            } catch (JSONException e) {
+                return null;
+            }
+        }
+        return json.toString();
+    }
+
+    /**
+     * Serialize a Bundle to a JSONObject, nested Bundles, arrays and lists included, so
+     * {@link #toBundle(JSONObject)} can read it back.
+     */
+    public static JSONObject toJsonObject(Bundle bundle) throws JSONException {
+        JSONObject json = new JSONObject();
+        for (String key : bundle.keySet()) {
+            json.put(key, toJsonValue(bundle.get(key)));
+        }
+        return json;
+    }
+
+    private static Object toJsonValue(Object value) throws JSONException {
+        if (value == null) {
+            return JSONObject.NULL;
+        } else if (value instanceof String || value instanceof Boolean || value instanceof Number) {
+            return value;
+        } else if (value instanceof Bundle) {
+            return toJsonObject((Bundle) value);
+        } else if (value instanceof List) {
+            JSONArray array = new JSONArray();
+            for (Object item : (List) value) {
+                array.put(toJsonValue(item));
+            }
+            return array;
+        } else if (value.getClass().isArray()) {
+            JSONArray array = new JSONArray();
+            for (int i = 0; i < Array.getLength(value); i++) {
+                array.put(toJsonValue(Array.get(value, i)));
+            }
+            return array;
+        }
+        return value.toString();
+    }
+
+    /**
+     * The Bundle a JSONObject stands for. Numbers become doubles and arrays lists, as the
+     * bridge passes them.
+     */
+    public static Bundle toBundle(JSONObject json) throws JSONException {
+        Bundle bundle = new Bundle();
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = json.get(key);
+            if (value == JSONObject.NULL) {
+                bundle.putString(key, null);
+            } else if (value instanceof String) {
+                bundle.putString(key, (String) value);
+            } else if (value instanceof Boolean) {
+                bundle.putBoolean(key, (Boolean) value);
+            } else if (value instanceof Number) {
+                bundle.putDouble(key, ((Number) value).doubleValue());
+            } else if (value instanceof JSONObject) {
+                bundle.putBundle(key, toBundle((JSONObject) value));
+            } else if (value instanceof JSONArray) {
+                bundle.putSerializable(key, toList((JSONArray) value));
+            }
+        }
+        return bundle;
+    }
+
+    private static ArrayList<Object> toList(JSONArray json) throws JSONException {
+        ArrayList<Object> list = new ArrayList<>(json.length());
+        for (int i = 0; i < json.length(); i++) {
+            Object value = json.get(i);
+            if (value == JSONObject.NULL) {
+                list.add(null);
+            } else if (value instanceof Number) {
+                list.add(((Number) value).doubleValue());
+            } else if (value instanceof JSONObject) {
+                list.add(toBundle((JSONObject) value));
+            } else if (value instanceof JSONArray) {
+                list.add(toList((JSONArray) value));
+            } else {
+                list.add(value);
+            }
+        }
+        return list;
+    }
+
+    private static WritableMap fromJson(JSONObject json) throws JSONException {
+        WritableMap map = Arguments.createMap();
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            putValue(map, key, json.get(key));
+        }
+        return map;
+    }
+
+    private static void putValue(WritableMap map, String key, Object value) {
+        if (value == null || value == JSONObject.NULL) {
+            map.putNull(key);
+        } else if (value instanceof String) {
+            map.putString(key, (String) value);
+        } else if (value instanceof Boolean) {
+            map.putBoolean(key, (Boolean) value);
+        } else if (value instanceof Number) {
+            map.putDouble(key, ((Number) value).doubleValue());
+        } else if (value instanceof Bundle) {
+            map.putMap(key, fromBundle((Bundle) value));
+        } else if (value instanceof JSONObject) {
+            try {
+                map.putMap(key, fromJson((JSONObject) value));
+            } catch (JSONException e) {
+                map.putNull(key);
+            }
+        } else {
+            WritableArray array = toArray(value);
+            if (array != null) {
+                map.putArray(key, array);
+            } else {
+                map.putString(key, value.toString());
+            }
+        }
+    }
+
+    private static WritableArray toArray(Object value) {
+        WritableArray array = Arguments.createArray();
+        if (value instanceof Object[]) {
+            for (Object item : (Object[]) value) {
+                pushValue(array, item);
+            }
+        } else if (value instanceof List) {
+            for (Object item : (List) value) {
+                pushValue(array, item);
+            }
+        } else if (value instanceof JSONArray) {
+            JSONArray jsonArray = (JSONArray) value;
+            for (int i = 0; i < jsonArray.length(); i++) {
+                pushValue(array, jsonArray.opt(i));
+            }
+        } else if (value instanceof int[]) {
+            for (int item : (int[]) value) {
+                array.pushDouble(item);
+            }
+        } else if (value instanceof long[]) {
+            for (long item : (long[]) value) {
+                array.pushDouble(item);
+            }
+        } else if (value instanceof double[]) {
+            for (double item : (double[]) value) {
+                array.pushDouble(item);
+            }
+        } else if (value instanceof float[]) {
+            for (float item : (float[]) value) {
+                array.pushDouble(item);
+            }
+        } else if (value instanceof boolean[]) {
+            for (boolean item : (boolean[]) value) {
+                array.pushBoolean(item);
+            }
+        } else {
+            return null;
+        }
+        return array;
+    }
+
+    private static void pushValue(WritableArray array, Object value) {
+        if (value == null || value == JSONObject.NULL) {
+            array.pushNull();
+        } else if (value instanceof String) {
+            array.pushString((String) value);
+        } else if (value instanceof Boolean) {
+            array.pushBoolean((Boolean) value);
+        } else if (value instanceof Number) {
+            array.pushDouble(((Number) value).doubleValue());
+        } else if (value instanceof Bundle) {
+            array.pushMap(fromBundle((Bundle) value));
+        } else if (value instanceof JSONObject) {
+            try {
+                array.pushMap(fromJson((JSONObject) value));
+            } catch (JSONException e) {
+                array.pushNull();
+            }
+        } else {
+            WritableArray nested = toArray(value);
+            if (nested != null) {
+                array.pushArray(nested);
+            } else {
+                array.pushString(value.toString());
+            }
+        }
+    }
+}
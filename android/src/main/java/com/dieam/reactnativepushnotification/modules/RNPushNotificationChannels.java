@@ -0,0 +1,169 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.graphics.Color;
+import android.media.RingtoneManager;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.util.Log;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the notification channels known to exist, on Android O and later.
+ *
+ * Creating a channel is an IPC to the system, so each channel is created once and
+ * remembered for the life of the process. Channels declared by a previous run are
+ * looked up once and then remembered as well.
+ */
+public class RNPushNotificationChannels {
+    private static final String TAG = "RNPushNotification";
+
+    private static final String CHANNEL_ID = "0";
+    private static final String CHANNEL_NAME = "Notifications";
+    private static final String SILENCE_CHANNEL_ID = "1";
+    private static final String SILENCE_CHANNEL_NAME = "Silence Notifications";
+
+    private final Context mContext;
+    private final NotificationManager mNotificationManager;
+    private final Set<String> mKnownChannels =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    public RNPushNotificationChannels(Context context, NotificationManager notificationManager) {
+        mContext = context;
+        mNotificationManager = notificationManager;
+    }
+
+    /**
+     * Id of the built-in channel used by notifications that do not select one, created on first use.
+     */
+    public String getDefaultChannel(boolean isSilence) {
+        String channelId = mContext.getPackageName() + (isSilence ? SILENCE_CHANNEL_ID : CHANNEL_ID);
+        if (mKnownChannels.contains(channelId) || Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return channelId;
+        }
+
+        NotificationChannel channel = new NotificationChannel(
+            channelId,
+            isSilence ? SILENCE_CHANNEL_NAME : CHANNEL_NAME,
+            NotificationManager.IMPORTANCE_DEFAULT
+        );
+        if (!isSilence) {
+            channel.enableLights(true);
+            channel.setLightColor(Color.GREEN);
+            channel.enableVibration(true);
+            channel.setLockscreenVisibility(Notification.VISIBILITY_SECRET);
+            Uri defaultSoundUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
+            channel.setSound(defaultSoundUri, null);
+        } else {
+            channel.enableLights(true);
+            channel.setLightColor(Color.GREEN);
+            channel.setLockscreenVisibility(Notification.VISIBILITY_SECRET);
+            channel.enableVibration(false);
+            channel.setSound(null, null);
+        }
+
+        mNotificationManager.createNotificationChannel(channel);
+        mKnownChannels.add(channelId);
+        return channelId;
+    }
+
+    /**
+     * Whether a channel with this id exists. Only asks the system the first time an id is seen.
+     */
+    public boolean hasChannel(String channelId) {
+        if (mKnownChannels.contains(channelId)) {
+            return true;
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return false;
+        }
+        if (mNotificationManager.getNotificationChannel(channelId) != null) {
+            mKnownChannels.add(channelId);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Create or update a channel declared by the app. Returns false before Android O or when
+     * the declaration is missing its id or name.
+     */
+    public boolean createChannel(Bundle options) {
+        String channelId = options.getString("id");
+        String name = options.getString("name");
+        if (channelId == null || name == null) {
+            Log.e(TAG, "A notification channel needs an id and a name");
+            return false;
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return false;
+        }
+
+        NotificationChannel channel = new NotificationChannel(channelId, name, getImportance(options.getString("importance")));
+
+        String description = options.getString("description");
+        if (description != null) {
+            channel.setDescription(description);
+        }
+
+        if (!options.containsKey("playSound") || options.getBoolean("playSound")) {
+            String soundName = options.getString("soundName");
+            Uri soundUri = soundName == null || "default".equals(soundName) ?
+                    RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION) : Uri.parse(soundName);
+            channel.setSound(soundUri, null);
+        } else {
+            channel.setSound(null, null);
+        }
+
+        boolean vibrate = !options.containsKey("vibrate") || options.getBoolean("vibrate");
+        channel.enableVibration(vibrate);
+        if (vibrate && options.containsKey("vibration")) {
+            channel.setVibrationPattern(new long[]{0, (long) options.getDouble("vibration")});
+        }
+
+        boolean lights = !options.containsKey("lights") || options.getBoolean("lights");
+        channel.enableLights(lights);
+        if (lights) {
+            String lightColor = options.getString("lightColor");
+            channel.setLightColor(lightColor != null ? Color.parseColor(lightColor) : Color.GREEN);
+        }
+
+        mNotificationManager.createNotificationChannel(channel);
+        mKnownChannels.add(channelId);
+        return true;
+    }
+
+    public void deleteChannel(String channelId) {
+        mKnownChannels.remove(channelId);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            mNotificationManager.deleteNotificationChannel(channelId);
+        }
+    }
+
+    private static int getImportance(String importance) {
+        if (importance == null) {
+            return NotificationManager.IMPORTANCE_DEFAULT;
+        }
+        switch (importance) {
+            case "max":
+                return NotificationManager.IMPORTANCE_MAX;
+            case "high":
+                return NotificationManager.IMPORTANCE_HIGH;
+            case "low":
+                return NotificationManager.IMPORTANCE_LOW;
+            case "min":
+                return NotificationManager.IMPORTANCE_MIN;
+            case "none":
+                return NotificationManager.IMPORTANCE_NONE;
+            default:
+                return NotificationManager.IMPORTANCE_DEFAULT;
+        }
+    }
+}
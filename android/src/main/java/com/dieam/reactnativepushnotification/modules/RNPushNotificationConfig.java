@@ -0,0 +1,238 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Bundle;
+
+/**
+ * Module settings that have to survive the JS runtime, since receivers and
+ * services read them while the app is not running.
+ */
+public class RNPushNotificationConfig {
+    private static final String PREFERENCES_KEY = "RNPushNotificationConfig";
+
+    /** One exact alarm per scheduled notification. */
+    public static final String SCHEDULER_PER_NOTIFICATION = "perNotification";
+    /** A single alarm for the next due notification, the store acts as the queue. */
+    public static final String SCHEDULER_SINGLE_ALARM = "singleAlarm";
+
+    private static final String KEY_SCHEDULER_MODE = "schedulerMode";
+    private static final String KEY_DELIVERY_WINDOW = "deliveryWindow";
+    private static final String KEY_TOLERANCE = "tolerance";
+    private static final String KEY_ARMED_DEADLINE = "armedDeadline";
+    private static final String KEY_EVENT_BUFFER_CAPACITY = "eventBufferCapacity";
+    private static final String KEY_EVENT_BUFFER_TTL = "eventBufferTtl";
+    private static final String KEY_DEDUPE_WINDOW = "dedupeWindow";
+    private static final String KEY_DEDUPE_BY_ID = "dedupeById";
+    private static final String KEY_APP_RATE = "appRate";
+    private static final String KEY_APP_BURST = "appBurst";
+    private static final String KEY_CHANNEL_RATE = "channelRate";
+    private static final String KEY_CHANNEL_BURST = "channelBurst";
+    private static final String KEY_TOKEN = "token";
+    private static final String KEY_TOKEN_SENDER_ID = "tokenSenderId";
+    private static final String KEY_TOKEN_APP_VERSION = "tokenAppVersion";
+    private static final String KEY_REGISTRATION_ATTEMPTS = "registrationAttempts";
+    private static final String KEY_BOOT_RESTORE_FINISHED_AT = "bootRestoreFinishedAt";
+    private static final String KEY_BOOT_RESTORE_DURATION = "bootRestoreDuration";
+    private static final String KEY_BOOT_RESTORE_SCHEDULED = "bootRestoreScheduled";
+    private static final String KEY_BOOT_RESTORE_OVERDUE = "bootRestoreOverdue";
+
+    private static final int DEFAULT_EVENT_BUFFER_CAPACITY = 100;
+    private static final long DEFAULT_EVENT_BUFFER_TTL = 24 * 60 * 60 * 1000L;
+    private static final long DEFAULT_DEDUPE_WINDOW = 10 * 60 * 1000L;
+    // Pushes are not rate limited until configurePushAdmission sets a rate.
+    private static final float DEFAULT_APP_RATE = 0;
+    private static final int DEFAULT_APP_BURST = 10;
+    private static final float DEFAULT_CHANNEL_RATE = 0;
+    private static final int DEFAULT_CHANNEL_BURST = 5;
+
+    private final SharedPreferences mSharedPreferences;
+
+    public RNPushNotificationConfig(Context context) {
+        mSharedPreferences = context.getSharedPreferences(PREFERENCES_KEY, Context.MODE_PRIVATE);
+    }
+
+    public String getSchedulerMode() {
+        return mSharedPreferences.getString(KEY_SCHEDULER_MODE, SCHEDULER_PER_NOTIFICATION);
+    }
+
+    public boolean isSingleAlarmScheduler() {
+        return SCHEDULER_SINGLE_ALARM.equals(getSchedulerMode());
+    }
+
+    public void setSchedulerMode(String mode) {
+        mSharedPreferences.edit().putString(KEY_SCHEDULER_MODE, mode).apply();
+    }
+
+    /**
+     * How far ahead of now, in milliseconds, the single alarm scheduler delivers
+     * notifications when it wakes up.
+     */
+    public long getDeliveryWindow() {
+        return mSharedPreferences.getLong(KEY_DELIVERY_WINDOW, 0);
+    }
+
+    public void setDeliveryWindow(long deliveryWindow) {
+        mSharedPreferences.edit().putLong(KEY_DELIVERY_WINDOW, deliveryWindow).apply();
+    }
+
+    /**
+     * Tolerance, in milliseconds, applied to scheduled notifications that do not set their own.
+     */
+    public long getTolerance() {
+        return mSharedPreferences.getLong(KEY_TOLERANCE, 0);
+    }
+
+    public void setTolerance(long tolerance) {
+        mSharedPreferences.edit().putLong(KEY_TOLERANCE, tolerance).apply();
+    }
+
+    /**
+     * Latest time the single alarm will go off, or 0 when it is not armed.
+     */
+    public long getArmedDeadline() {
+        return mSharedPreferences.getLong(KEY_ARMED_DEADLINE, 0);
+    }
+
+    public void setArmedDeadline(long deadline) {
+        mSharedPreferences.edit().putLong(KEY_ARMED_DEADLINE, deadline).apply();
+    }
+
+    /**
+     * Number of undelivered events kept for JS, the oldest ones are dropped first.
+     */
+    public int getEventBufferCapacity() {
+        return mSharedPreferences.getInt(KEY_EVENT_BUFFER_CAPACITY, DEFAULT_EVENT_BUFFER_CAPACITY);
+    }
+
+    public void setEventBufferCapacity(int capacity) {
+        mSharedPreferences.edit().putInt(KEY_EVENT_BUFFER_CAPACITY, capacity).apply();
+    }
+
+    /**
+     * How long, in milliseconds, undelivered events are kept for JS.
+     */
+    public long getEventBufferTtl() {
+        return mSharedPreferences.getLong(KEY_EVENT_BUFFER_TTL, DEFAULT_EVENT_BUFFER_TTL);
+    }
+
+    public void setEventBufferTtl(long ttl) {
+        mSharedPreferences.edit().putLong(KEY_EVENT_BUFFER_TTL, ttl).apply();
+    }
+
+    /**
+     * How long, in milliseconds, a push is remembered to drop duplicates of it.
+     */
+    public long getDedupeWindow() {
+        return mSharedPreferences.getLong(KEY_DEDUPE_WINDOW, DEFAULT_DEDUPE_WINDOW);
+    }
+
+    public void setDedupeWindow(long window) {
+        mSharedPreferences.edit().putLong(KEY_DEDUPE_WINDOW, window).apply();
+    }
+
+    /**
+     * Whether pushes with the same id and tag are duplicates, rather than only the ones
+     * with the same GCM message id. Off by default, as servers update a notification by
+     * sending it again with the same id.
+     */
+    public boolean isDedupeById() {
+        return mSharedPreferences.getBoolean(KEY_DEDUPE_BY_ID, false);
+    }
+
+    public void setDedupeById(boolean dedupeById) {
+        mSharedPreferences.edit().putBoolean(KEY_DEDUPE_BY_ID, dedupeById).apply();
+    }
+
+    /**
+     * Sustained number of pushes per second posted for the whole app, 0 for no limit.
+     */
+    public float getAppRate() {
+        return mSharedPreferences.getFloat(KEY_APP_RATE, DEFAULT_APP_RATE);
+    }
+
+    /**
+     * Number of pushes posted at once for the whole app before the rate applies.
+     */
+    public int getAppBurst() {
+        return mSharedPreferences.getInt(KEY_APP_BURST, DEFAULT_APP_BURST);
+    }
+
+    public void setAppRateLimit(float rate, int burst) {
+        mSharedPreferences.edit().putFloat(KEY_APP_RATE, rate).putInt(KEY_APP_BURST, burst).apply();
+    }
+
+    /**
+     * Sustained number of pushes per second posted to each channel, 0 for no limit.
+     */
+    public float getChannelRate() {
+        return mSharedPreferences.getFloat(KEY_CHANNEL_RATE, DEFAULT_CHANNEL_RATE);
+    }
+
+    /**
+     * Number of pushes posted at once to each channel before the rate applies.
+     */
+    public int getChannelBurst() {
+        return mSharedPreferences.getInt(KEY_CHANNEL_BURST, DEFAULT_CHANNEL_BURST);
+    }
+
+    public void setChannelRateLimit(float rate, int burst) {
+        mSharedPreferences.edit().putFloat(KEY_CHANNEL_RATE, rate).putInt(KEY_CHANNEL_BURST, burst).apply();
+    }
+
+    /**
+     * The last GCM token, see getTokenSenderId and getTokenAppVersion for what it was issued for.
+     */
+    public String getToken() {
+        return mSharedPreferences.getString(KEY_TOKEN, null);
+    }
+
+    public String getTokenSenderId() {
+        return mSharedPreferences.getString(KEY_TOKEN_SENDER_ID, null);
+    }
+
+    public int getTokenAppVersion() {
+        return mSharedPreferences.getInt(KEY_TOKEN_APP_VERSION, 0);
+    }
+
+    public void setToken(String token, String senderId, int appVersion) {
+        mSharedPreferences.edit()
+                .putString(KEY_TOKEN, token)
+                .putString(KEY_TOKEN_SENDER_ID, senderId)
+                .putInt(KEY_TOKEN_APP_VERSION, appVersion)
+                .apply();
+    }
+
+    /**
+     * Number of registrations that failed in a row.
+     */
+    public int getRegistrationAttempts() {
+        return mSharedPreferences.getInt(KEY_REGISTRATION_ATTEMPTS, 0);
+    }
+
+    public void setRegistrationAttempts(int attempts) {
+        mSharedPreferences.edit().putInt(KEY_REGISTRATION_ATTEMPTS, attempts).apply();
+    }
+
+    public void setBootRestoreStats(long finishedAt, long duration, int scheduled, int overdue) {
+        mSharedPreferences.edit()
+                .putLong(KEY_BOOT_RESTORE_FINISHED_AT, finishedAt)
+                .putLong(KEY_BOOT_RESTORE_DURATION, duration)
+                .putInt(KEY_BOOT_RESTORE_SCHEDULED, scheduled)
+                .putInt(KEY_BOOT_RESTORE_OVERDUE, overdue)
+                .apply();
+    }
+
+    /**
+     * Stats of the last restoration of scheduled notifications after a reboot:
+     * finishedAt, duration (milliseconds), scheduled and overdue counts.
+     */
+    public Bundle getBootRestoreStats() {
+        Bundle stats = new Bundle();
+        stats.putLong("finishedAt", mSharedPreferences.getLong(KEY_BOOT_RESTORE_FINISHED_AT, 0));
+        stats.putLong("duration", mSharedPreferences.getLong(KEY_BOOT_RESTORE_DURATION, 0));
+        stats.putInt("scheduled", mSharedPreferences.getInt(KEY_BOOT_RESTORE_SCHEDULED, 0));
+        stats.putInt("overdue", mSharedPreferences.getInt(KEY_BOOT_RESTORE_OVERDUE, 0));
+        return stats;
+    }
+}
@@ -0,0 +1,127 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import java.util.List;
+
+/**
+ * Keeps the notification events JS could not receive, while it was not running or not
+ * listening yet, so they can be replayed once it is.
+ *
+ * Events are persisted in a bounded ring buffer in the store, so they also survive the
+ * process being killed. Writes and replays go through one executor lane and therefore
+ * stay in arrival order.
+ */
+public class RNPushNotificationEventBuffer {
+    private static final String EXECUTOR_KEY = "RNPushNotificationEvents";
+
+    private static RNPushNotificationEventBuffer sInstance;
+
+    private final RNPushNotificationStore mStore;
+    private final RNPushNotificationConfig mConfig;
+
+    private volatile boolean mHasModule;
+    private volatile boolean mAttached;
+
+    public interface ReplayCallback {
+        void onReplay(List<RNPushNotificationStore.Event> events);
+    }
+
+    public interface Emitter {
+        /**
+         * Send the event to JS, or return false when it cannot receive it right now.
+         */
+        boolean emit();
+    }
+
+    public static synchronized RNPushNotificationEventBuffer getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new RNPushNotificationEventBuffer(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private RNPushNotificationEventBuffer(Context context) {
+        mStore = RNPushNotificationStore.getInstance(context);
+        mConfig = new RNPushNotificationConfig(context);
+    }
+
+    /**
+     * Whether a React module is alive to receive events, buffering them itself until JS attaches.
+     */
+    public boolean hasModule() {
+        return mHasModule;
+    }
+
+    public void setHasModule(boolean hasModule) {
+        mHasModule = hasModule;
+        if (!hasModule) {
+            mAttached = false;
+        }
+    }
+
+    /**
+     * Whether JS is listening, in which case events are sent to it directly.
+     */
+    public boolean isAttached() {
+        return mAttached;
+    }
+
+    public void add(final String name, final String payload) {
+        if (payload == null) {
+            return;
+        }
+        RNPushNotificationExecutor.getInstance().execute(EXECUTOR_KEY, new Runnable() {
+            @Override
+            public void run() {
+                put(name, payload);
+            }
+        });
+    }
+
+    /**
+     * Send an event with emitter when JS is listening, or else keep it for the replay. The
+     * choice is made on the lane, in order with attach(), so an event is either part of the
+     * replay or emitted after it.
+     */
+    public void dispatch(final String name, Bundle bundle, final Emitter emitter) {
+        final Bundle event = new Bundle(bundle);
+        RNPushNotificationExecutor.getInstance().execute(EXECUTOR_KEY, new Runnable() {
+            @Override
+            public void run() {
+                if (mAttached && emitter.emit()) {
+                    return;
+                }
+                String payload = RNPushNotificationBundleConverter.toJson(event);
+                if (payload != null) {
+                    put(name, payload);
+                }
+            }
+        });
+    }
+
+    private void put(String name, String payload) {
+        RNPushNotificationMetrics.getInstance().increment(RNPushNotificationMetrics.EVENTS_BUFFERED);
+        mStore.putEvent(name, payload, mConfig.getEventBufferCapacity());
+    }
+
+    /**
+     * Mark JS as listening and hand the buffered events, oldest first, to callback on the
+     * executor. Events older than the configured TTL are dropped.
+     */
+    public void attach(final ReplayCallback callback) {
+        RNPushNotificationExecutor.getInstance().execute(EXECUTOR_KEY, new Runnable() {
+            @Override
+            public void run() {
+                // Attach on the lane, so every event buffered before is part of the replay.
+                mAttached = true;
+                long notBefore = System.currentTimeMillis() - mConfig.getEventBufferTtl();
+                List<RNPushNotificationStore.Event> events = mStore.takeEvents(notBefore);
+                if (!events.isEmpty()) {
+                    callback.onReplay(events);
+                }
+            }
+        });
+    }
+}
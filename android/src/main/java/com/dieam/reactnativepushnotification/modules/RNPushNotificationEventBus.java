@@ -0,0 +1,64 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Hands intents from the services and receivers to the module without going through
+ * the system when both live in the same process.
+ *
+ * Receivers registered here are called on the main thread, like receivers registered
+ * with a Context. When no receiver is registered in this process, for example because the
+ * sender runs in a separate one, the intent is broadcast to the app's package instead.
+ * Extras are not copied, so senders must not change them once sent.
+ */
+public class RNPushNotificationEventBus {
+    private static final Map<String, List<BroadcastReceiver>> sReceivers = new ConcurrentHashMap<>();
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    public static synchronized void register(String action, BroadcastReceiver receiver) {
+        List<BroadcastReceiver> receivers = sReceivers.get(action);
+        if (receivers == null) {
+            receivers = new CopyOnWriteArrayList<>();
+            sReceivers.put(action, receivers);
+        }
+        receivers.add(receiver);
+    }
+
+    public static synchronized void unregister(BroadcastReceiver receiver) {
+        for (List<BroadcastReceiver> receivers : sReceivers.values()) {
+            receivers.remove(receiver);
+        }
+    }
+
+    public static void send(Context context, final Intent intent) {
+        List<BroadcastReceiver> receivers = sReceivers.get(intent.getAction());
+        if (receivers == null || receivers.isEmpty()) {
+            intent.setPackage(context.getPackageName());
+            context.sendBroadcast(intent);
+            return;
+        }
+
+        final Context appContext = context.getApplicationContext();
+        for (final BroadcastReceiver receiver : receivers) {
+            sMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    // Skip receivers unregistered in the meantime.
+                    List<BroadcastReceiver> current = sReceivers.get(intent.getAction());
+                    if (current != null && current.contains(receiver)) {
+                        receiver.onReceive(appContext, intent);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends the module's events to JS.
+ *
+ * By default every event is emitted as is. With batching enabled, events are buffered
+ * for a short interval, or until enough of them piled up, and emitted together as one
+ * BATCH_EVENT holding an array of { name, body }. Buffered events sharing a coalescing
+ * key, such as two updates of the same notification, only keep the latest one.
+ */
+public class RNPushNotificationEventEmitter {
+    public static final String BATCH_EVENT = "notificationBatch";
+
+    private static final int DEFAULT_MAX_BATCH_SIZE = 50;
+
+    private final ReactContext mReactContext;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, PendingEvent> mPending = new LinkedHashMap<>();
+    private final Runnable mFlush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private long mBatchInterval;
+    private int mMaxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private int mUnkeyedCount;
+
+    public RNPushNotificationEventEmitter(ReactContext reactContext) {
+        mReactContext = reactContext;
+    }
+
+    /**
+     * Buffer events for up to interval milliseconds or maxBatchSize events before sending
+     * them in one batch. An interval of 0 turns batching off.
+     */
+    public void setBatching(long interval, int maxBatchSize) {
+        synchronized (mPending) {
+            mBatchInterval = interval;
+            mMaxBatchSize = maxBatchSize > 0 ? maxBatchSize : DEFAULT_MAX_BATCH_SIZE;
+        }
+        if (interval <= 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Send an event. Pending events with the same name and a non-null coalesceKey are
+     * replaced by this one, which keeps the position of the first.
+     */
+    public void emit(String eventName, WritableMap params, String coalesceKey) {
+        boolean batched;
+        synchronized (mPending) {
+            batched = mBatchInterval > 0;
+            if (batched) {
+                String key = coalesceKey != null ? eventName + ":" + coalesceKey : "#" + mUnkeyedCount++;
+                if (mPending.isEmpty()) {
+                    mHandler.postDelayed(mFlush, mBatchInterval);
+                }
+                mPending.put(key, new PendingEvent(eventName, params));
+                if (mPending.size() < mMaxBatchSize) {
+                    return;
+                }
+            }
+        }
+
+        if (batched) {
+            flush();
+        } else {
+            send(eventName, params);
+        }
+    }
+
+    /**
+     * Send whatever is buffered right away.
+     */
+    public void flush() {
+        WritableArray batch;
+        synchronized (mPending) {
+            mHandler.removeCallbacks(mFlush);
+            if (mPending.isEmpty()) {
+                return;
+            }
+            batch = Arguments.createArray();
+            for (PendingEvent event : mPending.values()) {
+                WritableMap entry = Arguments.createMap();
+                entry.putString("name", event.mName);
+                entry.putMap("body", event.mParams);
+                batch.pushMap(entry);
+            }
+            mPending.clear();
+            mUnkeyedCount = 0;
+        }
+        send(BATCH_EVENT, batch);
+    }
+
+    /**
+     * Send events together as one batch, right after whatever is already buffered.
+     */
+    public void emitBatch(List<String> eventNames, List<WritableMap> params) {
+        flush();
+        WritableArray batch = Arguments.createArray();
+        for (int i = 0; i < eventNames.size(); i++) {
+            WritableMap entry = Arguments.createMap();
+            entry.putString("name", eventNames.get(i));
+            entry.putMap("body", params.get(i));
+            batch.pushMap(entry);
+        }
+        send(BATCH_EVENT, batch);
+    }
+
+    private void send(String eventName, Object params) {
+        RNPushNotificationMetrics metrics = RNPushNotificationMetrics.getInstance();
+        if (mReactContext.hasActiveCatalystInstance()) {
+            long startNanos = System.nanoTime();
+            mReactContext
+                    .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                    .emit(eventName, params);
+            metrics.record(RNPushNotificationMetrics.EMIT, startNanos);
+        } else {
+            metrics.increment(RNPushNotificationMetrics.EMIT_DROPPED);
+        }
+    }
+
+    private static class PendingEvent {
+        final String mName;
+        final WritableMap mParams;
+
+        PendingEvent(String name, WritableMap params) {
+            mName = name;
+            mParams = params;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.BroadcastReceiver;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds and posts notifications off the caller's thread.
+ *
+ * Work is spread over a few single threaded lanes picked by key, usually the
+ * notification id, so everything done for one notification runs in order while
+ * different notifications are handled in parallel. Each lane queues up to
+ * LANE_CAPACITY tasks. Submitting never blocks, since callers include receivers on
+ * the main thread and tasks already running on a lane: a task submitted to a full
+ * lane is rejected instead, counted in the metrics, and the caller decides what
+ * to do without it.
+ */
+public class RNPushNotificationExecutor {
+    private static final String TAG = "RNPushNotification";
+
+    private static final int LANE_COUNT = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    // Tasks a lane holds waiting to run, past which it rejects new ones.
+    private static final int LANE_CAPACITY = 128;
+
+    private static RNPushNotificationExecutor sInstance;
+
+    private final ThreadPoolExecutor[] mLanes;
+
+    public static synchronized RNPushNotificationExecutor getInstance() {
+        if (sInstance == null) {
+            sInstance = new RNPushNotificationExecutor();
+        }
+        return sInstance;
+    }
+
+    private RNPushNotificationExecutor() {
+        mLanes = new ThreadPoolExecutor[LANE_COUNT];
+        for (int i = 0; i < LANE_COUNT; i++) {
+            mLanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(LANE_CAPACITY), new LaneThreadFactory(i));
+        }
+    }
+
+    /**
+     * Run task on the lane for key. Tasks sharing a key run one after the other, in submission order.
+     *
+     * @return false when the lane is full and task was rejected
+     */
+    public boolean execute(String key, Runnable task) {
+        try {
+            getLane(key).execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            RNPushNotificationMetrics.getInstance().increment(RNPushNotificationMetrics.QUEUE_REJECTED);
+            Log.w(TAG, "Notification queue is full, rejecting a task for " + key);
+            return false;
+        }
+    }
+
+    /**
+     * Run task on the lane for key and finish the receiver's pending result once it is done,
+     * so a BroadcastReceiver can hand its work over with goAsync(). The pending result is
+     * finished right away when the task is rejected.
+     *
+     * @return false when the lane is full and task was rejected
+     */
+    public boolean execute(String key, final Runnable task, final BroadcastReceiver.PendingResult pendingResult) {
+        boolean accepted = execute(key, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } finally {
+                    if (pendingResult != null) {
+                        pendingResult.finish();
+                    }
+                }
+            }
+        });
+        if (!accepted && pendingResult != null) {
+            pendingResult.finish();
+        }
+        return accepted;
+    }
+
+    /**
+     * Number of tasks waiting to run, over all lanes.
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (ThreadPoolExecutor lane : mLanes) {
+            depth += lane.getQueue().size();
+        }
+        return depth;
+    }
+
+    /**
+     * Stop every lane, dropping the tasks still waiting.
+     */
+    void shutdown() {
+        for (ThreadPoolExecutor lane : mLanes) {
+            lane.shutdownNow();
+        }
+    }
+
+    private ThreadPoolExecutor getLane(String key) {
+        int hash = key == null ? 0 : key.hashCode();
+        return mLanes[(hash & Integer.MAX_VALUE) % mLanes.length];
+    }
+
+    private static class LaneThreadFactory implements ThreadFactory {
+        private final int mLane;
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        LaneThreadFactory(int lane) {
+            mLane = lane;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "RNPushNotification-" + mLane + "-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.app.Activity;
+import android.app.ActivityManager;
+import android.app.ActivityManager.RunningAppProcessInfo;
+import android.app.Application;
+import android.content.Context;
+import android.os.Bundle;
+
+import com.facebook.react.bridge.LifecycleEventListener;
+
+/**
+ * Tracks whether the app is in the foreground, so pushes can be routed without asking
+ * the ActivityManager for the whole process list every time.
+ *
+ * The state is kept up to date by the activity lifecycle callbacks, plus the React host
+ * lifecycle for the case where the tracker is created after the activity already started.
+ * It is seeded once from the process importance when the tracker is created.
+ */
+public class RNPushNotificationForegroundTracker implements Application.ActivityLifecycleCallbacks, LifecycleEventListener {
+    private static RNPushNotificationForegroundTracker sInstance;
+
+    // Only changed from the main thread, read from any thread.
+    private volatile boolean mForeground;
+    private int mStartedActivities;
+
+    public static synchronized RNPushNotificationForegroundTracker getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new RNPushNotificationForegroundTracker();
+            Context applicationContext = context.getApplicationContext();
+            if (applicationContext instanceof Application) {
+                ((Application) applicationContext).registerActivityLifecycleCallbacks(sInstance);
+            }
+        }
+        return sInstance;
+    }
+
+    private RNPushNotificationForegroundTracker() {
+        RunningAppProcessInfo processInfo = new RunningAppProcessInfo();
+        ActivityManager.getMyMemoryState(processInfo);
+        mForeground = processInfo.importance == RunningAppProcessInfo.IMPORTANCE_FOREGROUND;
+    }
+
+    public boolean isForeground() {
+        return mForeground;
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+        mStartedActivities++;
+        mForeground = true;
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+        // Activities started before the tracker was registered are stopped without being counted.
+        mStartedActivities = Math.max(0, mStartedActivities - 1);
+        if (mStartedActivities == 0) {
+            mForeground = false;
+        }
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+    }
+
+    @Override
+    public void onHostResume() {
+        mForeground = true;
+    }
+
+    @Override
+    public void onHostPause() {
+    }
+
+    @Override
+    public void onHostDestroy() {
+        if (mStartedActivities == 0) {
+            mForeground = false;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.service.notification.StatusBarNotification;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the notifications of each group bounded and refreshes the group's summary.
+ *
+ * Every notification is posted on its own. Once a group shows more than MAX_CHILDREN of
+ * them, the oldest ones are cancelled and only counted in the summary. The shown ones are
+ * read from the notification manager on Android M and later, so notifications tapped or
+ * dismissed by the user no longer count. Earlier releases cannot list them and rely on the
+ * ones posted by this process. Summary refreshes are rate limited: a burst refreshes it
+ * right away once, then at most once per REFRESH_INTERVAL.
+ */
+public class RNPushNotificationGroupSummarizer {
+    public static final int MAX_CHILDREN = 10;
+
+    private static final int MAX_LINES = RNPushNotificationHelper.MAX_SUMMARY_LINES;
+    private static final long REFRESH_INTERVAL = 1000;
+
+    public interface SummaryPoster {
+        /**
+         * Post the summary of group, standing for count notifications, the latest lines first.
+         */
+        void postSummary(String group, int count, List<String> lines);
+    }
+
+    private final SummaryPoster mPoster;
+    private final NotificationManager mNotificationManager;
+    private final RNPushNotificationMetrics mMetrics = RNPushNotificationMetrics.getInstance();
+    private final Handler mHandler;
+    private final Map<String, GroupState> mGroups = new HashMap<>();
+
+    public RNPushNotificationGroupSummarizer(NotificationManager notificationManager, SummaryPoster poster) {
+        mNotificationManager = notificationManager;
+        mPoster = poster;
+        HandlerThread thread = new HandlerThread("RNPushNotification-summaries", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        mHandler = new Handler(thread.getLooper());
+    }
+
+    /**
+     * Count a notification just posted to group under tag and id, with line as its summary line.
+     */
+    public void add(String group, String tag, int id, String line) {
+        synchronized (mGroups) {
+            GroupState state = mGroups.get(group);
+            if (state == null) {
+                state = new GroupState();
+                mGroups.put(group, state);
+            }
+            // An update of a notification already counted moves it to the end.
+            state.mChildren.remove(new Child(tag, id, null, 0));
+            state.mChildren.addLast(new Child(tag, id, line, System.currentTimeMillis()));
+        }
+
+        requestSummary(group);
+    }
+
+    /**
+     * Stop counting a notification of group that was cancelled.
+     */
+    public void remove(String group, String tag, int id) {
+        synchronized (mGroups) {
+            GroupState state = mGroups.get(group);
+            if (state != null) {
+                state.mChildren.remove(new Child(tag, id, null, 0));
+            }
+        }
+    }
+
+    /**
+     * Forget a group, for example once its summary was dismissed.
+     */
+    public void reset(String group) {
+        synchronized (mGroups) {
+            mGroups.remove(group);
+        }
+    }
+
+    /**
+     * Forget every group, for example once all notifications were cancelled.
+     *
+     * @return the groups forgotten
+     */
+    public List<String> clear() {
+        synchronized (mGroups) {
+            List<String> groups = new ArrayList<>(mGroups.keySet());
+            mGroups.clear();
+            return groups;
+        }
+    }
+
+    private void requestSummary(final String group) {
+        synchronized (mGroups) {
+            GroupState state = mGroups.get(group);
+            if (state == null || state.mRefreshPending) {
+                return;
+            }
+            state.mRefreshPending = true;
+            long wait = Math.max(0, state.mLastRefresh + REFRESH_INTERVAL - SystemClock.elapsedRealtime());
+            mHandler.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    refresh(group);
+                }
+            }, wait);
+        }
+    }
+
+    private void refresh(String group) {
+        List<Child> active = getActiveChildren(group);
+
+        List<Child> collapsed;
+        int count;
+        List<String> lines = new ArrayList<>(MAX_LINES);
+        synchronized (mGroups) {
+            GroupState state = mGroups.get(group);
+            if (state == null) {
+                return;
+            }
+            state.mRefreshPending = false;
+            state.mLastRefresh = SystemClock.elapsedRealtime();
+
+            if (active == null) {
+                // The shown notifications cannot be listed, go by the ones posted.
+                active = new ArrayList<>(state.mChildren);
+            } else {
+                if (!state.mSummaryShown) {
+                    // The summary was tapped or dismissed, the collapsed notifications went with it.
+                    state.mCollapsed = 0;
+                    state.mCollapsedLines.clear();
+                }
+                // Posted since the last refresh but possibly not listed yet.
+                for (Child child : state.mChildren) {
+                    if (!active.contains(child)) {
+                        active.add(child);
+                    }
+                }
+                state.mChildren.clear();
+            }
+
+            Collections.sort(active, new Comparator<Child>() {
+                @Override
+                public int compare(Child a, Child b) {
+                    return a.mPostTime < b.mPostTime ? -1 : a.mPostTime == b.mPostTime ? 0 : 1;
+                }
+            });
+            int collapsedCount = Math.max(0, active.size() - MAX_CHILDREN);
+            collapsed = new ArrayList<>(active.subList(0, collapsedCount));
+            active = active.subList(collapsedCount, active.size());
+            for (Child child : collapsed) {
+                state.mChildren.remove(child);
+                if (child.mLine != null) {
+                    state.mCollapsedLines.addFirst(child.mLine);
+                    if (state.mCollapsedLines.size() > MAX_LINES) {
+                        state.mCollapsedLines.removeLast();
+                    }
+                }
+            }
+            state.mCollapsed += collapsedCount;
+
+            count = active.size() + state.mCollapsed;
+            for (int i = active.size() - 1; i >= 0 && lines.size() < MAX_LINES; i--) {
+                if (active.get(i).mLine != null) {
+                    lines.add(active.get(i).mLine);
+                }
+            }
+            for (String line : state.mCollapsedLines) {
+                if (lines.size() >= MAX_LINES) {
+                    break;
+                }
+                lines.add(line);
+            }
+            state.mSummaryShown = count >= 2;
+        }
+
+        for (Child child : collapsed) {
+            mNotificationManager.cancel(child.mTag, child.mId);
+        }
+        mMetrics.add(RNPushNotificationMetrics.SUMMARIZED, collapsed.size());
+
+        if (count >= 2) {
+            mPoster.postSummary(group, count, lines);
+        }
+    }
+
+    /**
+     * The notifications of group in the notification drawer, without its summary, or null
+     * when they cannot be listed.
+     */
+    private List<Child> getActiveChildren(String group) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return null;
+        }
+
+        List<Child> children = new ArrayList<>();
+        boolean summaryShown = false;
+        for (StatusBarNotification shown : mNotificationManager.getActiveNotifications()) {
+            Notification notification = shown.getNotification();
+            if (!group.equals(notification.getGroup())) {
+                continue;
+            }
+            if ((notification.flags & Notification.FLAG_GROUP_SUMMARY) != 0) {
+                summaryShown = true;
+                continue;
+            }
+            CharSequence line = notification.extras != null ?
+                    notification.extras.getCharSequence(Notification.EXTRA_TEXT) : null;
+            children.add(new Child(shown.getTag(), shown.getId(), line != null ? line.toString() : null,
+                    shown.getPostTime()));
+        }
+
+        synchronized (mGroups) {
+            GroupState state = mGroups.get(group);
+            if (state != null && !summaryShown) {
+                state.mSummaryShown = false;
+            }
+        }
+        return children;
+    }
+
+    private static class Child {
+        final String mTag;
+        final int mId;
+        final String mLine;
+        final long mPostTime;
+
+        Child(String tag, int id, String line, long postTime) {
+            mTag = tag;
+            mId = id;
+            mLine = line;
+            mPostTime = postTime;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Child)) {
+                return false;
+            }
+            Child other = (Child) o;
+            return mId == other.mId && (mTag == null ? other.mTag == null : mTag.equals(other.mTag));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mId + (mTag != null ? mTag.hashCode() : 0);
+        }
+    }
+
+    private static class GroupState {
+        // Before Android M every notification posted and not collapsed, afterwards only the
+        // ones posted since the last refresh.
+        final LinkedList<Child> mChildren = new LinkedList<>();
+        final LinkedList<String> mCollapsedLines = new LinkedList<>();
+        int mCollapsed;
+        boolean mSummaryShown;
+        long mLastRefresh = -REFRESH_INTERVAL;
+        boolean mRefreshPending;
+    }
+}
@@ -4,21 +4,21 @@ package com.dieam.reactnativepushnotification.modules;
 import android.app.*;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.content.pm.ApplicationInfo;
-import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Color;
 import android.media.RingtoneManager;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.service.notification.StatusBarNotification;
 import android.support.v4.app.NotificationCompat;
 import android.util.Log;
+import android.util.LruCache;
 
-import java.util.Random;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import org.json.JSONArray;
 import org.json.JSONException;
 
@@ -27,33 +27,105 @@ public class RNPushNotificationHelper {
     private static final long DEFAULT_VIBRATION = 1000L;
     private static final String TAG = RNPushNotificationHelper.class.getSimpleName();
 
-    private static final String CHANNEL_ID = "0";
-    private static final String CHANNEL_NAME = "Notifications";
-    private static final String SILENCE_CHANNEL_ID = "1";
-    private static final String SILENCE_CHANNEL_NAME = "Silence Notifications";
+    private static final String SCHEDULED_GROUP = "RNPushNotificationScheduled";
+    private static final String OVERDUE_TAG = "RNPushNotificationOverdue";
+    private static final int SUMMARY_NOTIFICATION_ID = 0;
+    private static final int MAX_POSTED_BUILDERS = 32;
+    // Notification extra holding the cancel category, to find shown notifications by it.
+    private static final String EXTRA_CANCEL_CATEGORY = "RNPushNotificationCancelCategory";
+    // Notification extra holding the bundle it was posted from, to update it in full later.
+    static final String EXTRA_NOTIFICATION = "RNPushNotificationBundle";
+    // Notification extra marking the summaries posted by this library.
+    private static final String EXTRA_SUMMARY = "RNPushNotificationSummary";
+    static final int MAX_SUMMARY_LINES = 5;
+
+    private static RNPushNotificationHelper sInstance;
 
     private Context mContext;
-    private final SharedPreferences mSharedPreferences;
+    private final RNPushNotificationStore mStore;
+    private final RNPushNotificationConfig mConfig;
+    private final RNPushNotificationIconCache mIconCache;
+    private final NotificationManager mNotificationManager;
+    private final AlarmManager mAlarmManager;
+    private final RNPushNotificationMetrics mMetrics = RNPushNotificationMetrics.getInstance();
+    private final RNPushNotificationChannels mChannels;
+    // Held while arming the single alarm, which the module thread, the scheduler lane and
+    // the boot restore can all do at once.
+    private final Object mSingleAlarmLock = new Object();
+    // Builders of the latest notifications posted, by id, so updates only apply what changed.
+    private final LruCache<String, PostedNotification> mPostedNotifications = new LruCache<>(MAX_POSTED_BUILDERS);
+    private final RNPushNotificationGroupSummarizer mGroupSummarizer;
+
+    // Resolved on first use and kept for the life of the process.
+    private volatile Class mMainActivityClass;
+    private volatile String mApplicationLabel;
+
+    /**
+     * The helper shared by the module, the receivers and the services of this process.
+     * It is safe to use from any thread.
+     */
+    public static synchronized RNPushNotificationHelper getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new RNPushNotificationHelper((Application) context.getApplicationContext());
+        }
+        return sInstance;
+    }
 
+    /**
+     * Prefer {@link #getInstance(Context)}, which shares the cached state between callers.
+     */
     public RNPushNotificationHelper(Application context) {
         mContext = context;
-        mSharedPreferences = (SharedPreferences)context.getSharedPreferences(PREFERENCES_KEY, Context.MODE_PRIVATE);
+        mStore = RNPushNotificationStore.getInstance(context);
+        mConfig = new RNPushNotificationConfig(context);
+        mIconCache = RNPushNotificationIconCache.getInstance(context);
+        mNotificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        mAlarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        mChannels = new RNPushNotificationChannels(context, mNotificationManager);
+        mGroupSummarizer = new RNPushNotificationGroupSummarizer(mNotificationManager,
+                new RNPushNotificationGroupSummarizer.SummaryPoster() {
+                    @Override
+                    public void postSummary(String group, int count, List<String> lines) {
+                        sendSummaryNotification(group, group, count, lines);
+                    }
+                });
+    }
+
+    public RNPushNotificationConfig getConfig() {
+        return mConfig;
+    }
+
+    public RNPushNotificationChannels getChannels() {
+        return mChannels;
     }
 
     public Class getMainActivityClass() {
+        if (mMainActivityClass != null) {
+            return mMainActivityClass;
+        }
+
         String packageName = mContext.getPackageName();
         Intent launchIntent = mContext.getPackageManager().getLaunchIntentForPackage(packageName);
         String className = launchIntent.getComponent().getClassName();
         try {
-            return Class.forName(className);
+            mMainActivityClass = Class.forName(className);
+            return mMainActivityClass;
         } catch (ClassNotFoundException e) {
             e.printStackTrace();
             return null;
         }
     }
 
+    private String getApplicationLabel() {
+        if (mApplicationLabel == null) {
+            ApplicationInfo appInfo = mContext.getApplicationInfo();
+            mApplicationLabel = mContext.getPackageManager().getApplicationLabel(appInfo).toString();
+        }
+        return mApplicationLabel;
+    }
+
     private AlarmManager getAlarmManager() {
-        return (AlarmManager) mContext.getSystemService(Context.ALARM_SERVICE);
+        return mAlarmManager;
     }
 
     private PendingIntent getScheduleNotificationIntent(Bundle bundle) {
@@ -74,39 +146,144 @@ public class RNPushNotificationHelper {
         return PendingIntent.getBroadcast(mContext, notificationID, notificationIntent, PendingIntent.FLAG_UPDATE_CURRENT);
     }
 
-    public void sendNotificationScheduled(Bundle bundle) {
-        Class intentClass = getMainActivityClass();
-        if (intentClass == null) {
-            Log.e("RNPushNotification", "No activity class found for the notification");
-            return;
+    private PendingIntent getSingleAlarmIntent() {
+        Intent alarmIntent = new Intent(mContext, RNPushNotificationPublisher.class);
+        alarmIntent.setAction(RNPushNotificationPublisher.ACTION_DELIVER_DUE);
+
+        return PendingIntent.getBroadcast(mContext, 0, alarmIntent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+
+    /**
+     * Set an alarm at fireDate, or anywhere in [fireDate, fireDate + tolerance] when a
+     * tolerance is given, so the system can batch it with other wakeups.
+     */
+    void setAlarm(long fireDate, long tolerance, PendingIntent pendingIntent) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            if (tolerance > 0) {
+                getAlarmManager().setWindow(AlarmManager.RTC_WAKEUP, fireDate, tolerance, pendingIntent);
+            } else {
+                getAlarmManager().setExact(AlarmManager.RTC_WAKEUP, fireDate, pendingIntent);
+            }
+        } else {
+            getAlarmManager().set(AlarmManager.RTC_WAKEUP, fireDate, pendingIntent);
         }
+    }
 
+    private String validateScheduledNotification(Bundle bundle) {
         if (bundle.getString("message") == null) {
-            Log.e("RNPushNotification", "No message specified for the notification");
-            return;
+            return "No message specified for the notification";
+        }
+
+        String id = bundle.getString("id");
+        if (id == null) {
+            return "No notification ID specified for the notification";
+        }
+
+        try {
+            Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return "Notification ID should be a 32 bit integer specified as string";
         }
 
-        if(bundle.getString("id") == null) {
-            Log.e("RNPushNotification", "No notification ID specified for the notification");
+        if (bundle.getDouble("fireDate") == 0) {
+            return "No date specified for the scheduled notification";
+        }
+
+        return null;
+    }
+
+    private void applyDefaultTolerance(Bundle bundle) {
+        long tolerance = mConfig.getTolerance();
+        if (tolerance > 0 && !bundle.containsKey("tolerance")) {
+            bundle.putDouble("tolerance", tolerance);
+        }
+    }
+
+    public void sendNotificationScheduled(Bundle bundle) {
+        Class intentClass = getMainActivityClass();
+        if (intentClass == null) {
+            Log.e("RNPushNotification", "No activity class found for the notification");
             return;
         }
 
-        double fireDate = bundle.getDouble("fireDate");
-        if (fireDate == 0) {
-            Log.e("RNPushNotification", "No date specified for the scheduled notification");
+        String error = validateScheduledNotification(bundle);
+        if (error != null) {
+            Log.e("RNPushNotification", error);
             return;
         }
 
+        double fireDate = bundle.getDouble("fireDate");
         long currentTime = System.currentTimeMillis();
         Log.i("RNPushNotification", "fireDate: " + fireDate + ", Now Time: " + currentTime);
 
-        storeNotificationToPreferences(bundle);
+        long startNanos = System.nanoTime();
+        applyDefaultTolerance(bundle);
+        storeNotification(bundle);
 
         sendNotificationScheduledCore(bundle);
+        mMetrics.record(RNPushNotificationMetrics.SCHEDULE, startNanos);
+        mMetrics.increment(RNPushNotificationMetrics.SCHEDULED);
+    }
+
+    /**
+     * Schedule several notifications, persisting all of them in a single transaction.
+     * Returns one entry per bundle, in order: null when it was scheduled, or the reason it was rejected.
+     */
+    public List<String> sendNotificationsScheduled(List<Bundle> bundles) {
+        long startNanos = System.nanoTime();
+        List<String> errors = new ArrayList<>(bundles.size());
+        List<Bundle> accepted = new ArrayList<>(bundles.size());
+        List<RNPushNotificationAttributes> attributes = new ArrayList<>(bundles.size());
+
+        Class intentClass = getMainActivityClass();
+        for (Bundle bundle : bundles) {
+            String error = intentClass == null ? "No activity class found for the notification" :
+                    validateScheduledNotification(bundle);
+            errors.add(error);
+            if (error == null) {
+                applyDefaultTolerance(bundle);
+                RNPushNotificationAttributes notificationAttributes = new RNPushNotificationAttributes();
+                notificationAttributes.fromBundle(bundle);
+                attributes.add(notificationAttributes);
+                accepted.add(bundle);
+            } else {
+                Log.e("RNPushNotification", error);
+            }
+        }
+
+        mStore.putAll(attributes);
+
+        if (mConfig.isSingleAlarmScheduler()) {
+            // Arm the single alarm once for the whole batch instead of once per notification.
+            long currentTime = System.currentTimeMillis();
+            long earliestDeadline = Long.MAX_VALUE;
+            for (Bundle bundle : accepted) {
+                long fireDate = (long) bundle.getDouble("fireDate");
+                if (fireDate < currentTime) {
+                    // Stored just above, so it comes out of the store again.
+                    sendNotification(bundle, true);
+                } else {
+                    earliestDeadline = Math.min(earliestDeadline, fireDate + (long) bundle.getDouble("tolerance"));
+                }
+            }
+            if (earliestDeadline != Long.MAX_VALUE) {
+                armSingleAlarm(earliestDeadline);
+            }
+        } else {
+            for (Bundle bundle : accepted) {
+                sendNotificationScheduledCore(bundle);
+            }
+        }
+        mMetrics.record(RNPushNotificationMetrics.SCHEDULE, startNanos);
+        mMetrics.add(RNPushNotificationMetrics.SCHEDULED, accepted.size());
+        Log.i("RNPushNotification", "Scheduled " + accepted.size() + " of " + bundles.size() + " notifications");
+
+        return errors;
     }
 
     public void sendNotificationScheduledCore(Bundle bundle) {
         long fireDate = (long)bundle.getDouble("fireDate");
+        long tolerance = (long)bundle.getDouble("tolerance");
 
         // If the fireDate is in past, show the notification immediately.
         // This is to cover the case when user has scheduled a few notifications
@@ -114,35 +291,277 @@ public class RNPushNotificationHelper {
         // notifications should be shown to the user as soon as the phone is booted
         // again
         if(fireDate < System.currentTimeMillis()) {
-            sendNotification(bundle);
+            sendNotification(bundle, true);
+        } else if (mConfig.isSingleAlarmScheduler()) {
+            armSingleAlarm(fireDate + tolerance);
         } else {
-            PendingIntent pendingIntent = getScheduleNotificationIntent(bundle);
+            setAlarm(fireDate, tolerance, getScheduleNotificationIntent(bundle));
+        }
+    }
 
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-                getAlarmManager().setExact(AlarmManager.RTC_WAKEUP, fireDate, pendingIntent);
-            } else {
-                getAlarmManager().set(AlarmManager.RTC_WAKEUP, fireDate, pendingIntent);
+    /**
+     * Make sure the single alarm goes off no later than deadline. The alarm is only
+     * re-armed when it could currently go off after that.
+     */
+    private void armSingleAlarm(long deadline) {
+        synchronized (mSingleAlarmLock) {
+            long armedDeadline = mConfig.getArmedDeadline();
+            if (armedDeadline >= System.currentTimeMillis() && armedDeadline <= deadline) {
+                return;
             }
+
+            rearmSingleAlarm();
         }
     }
 
-    private void storeNotificationToPreferences(Bundle bundle) {
-        RNPushNotificationAttributes notificationAttributes = new RNPushNotificationAttributes();
-        notificationAttributes.fromBundle(bundle);
-        SharedPreferences.Editor editor = mSharedPreferences.edit();
-        editor.putString(notificationAttributes.getId(), notificationAttributes.toJson().toString());
-        commitPreferences(editor);
+    /**
+     * Arm the single alarm for the earliest stored notification, or disarm it when nothing is left.
+     * The alarm window stretches up to the earliest deadline, so it can go off late enough to
+     * pick up every notification whose tolerance window overlaps.
+     */
+    public void rearmSingleAlarm() {
+        synchronized (mSingleAlarmLock) {
+            RNPushNotificationAttributes next = mStore.nextDue();
+            if (next == null) {
+                disarmSingleAlarm();
+                return;
+            }
+
+            long fireDate = (long) next.getFireDate();
+            long deadline = Math.max(fireDate, mStore.nextDeadline());
+            setAlarm(fireDate, deadline - fireDate, getSingleAlarmIntent());
+            mConfig.setArmedDeadline(deadline);
+        }
+    }
+
+    private void disarmSingleAlarm() {
+        synchronized (mSingleAlarmLock) {
+            getAlarmManager().cancel(getSingleAlarmIntent());
+            mConfig.setArmedDeadline(0);
+        }
+    }
+
+    /**
+     * Called when the single alarm goes off: post every stored notification due within
+     * the configured delivery window and re-arm the alarm for the next one. The stored
+     * records keep every field of the scheduled bundle, so they post the same as with
+     * one alarm per notification.
+     */
+    public void deliverDueNotifications() {
+        long until = System.currentTimeMillis() + mConfig.getDeliveryWindow();
+        List<RNPushNotificationAttributes> due = mStore.getRange(Long.MIN_VALUE, until + 1);
+
+        List<String> ids = new ArrayList<>(due.size());
+        for (RNPushNotificationAttributes notificationAttributes : due) {
+            ids.add(notificationAttributes.getId());
+        }
+        mStore.removeAll(ids);
+
+        List<Bundle> bundles = new ArrayList<>(due.size());
+        for (RNPushNotificationAttributes notificationAttributes : due) {
+            bundles.add(notificationAttributes.toBundle());
+        }
+        sendDueNotifications(bundles);
+        Log.i("RNPushNotification", "Delivered " + due.size() + " due notifications");
+
+        rearmSingleAlarm();
     }
 
-    private void commitPreferences(SharedPreferences.Editor editor) {
-        if (Build.VERSION.SDK_INT < 9) {
-            editor.commit();
+    /**
+     * Called when the alarm of a single notification goes off. Every other stored notification
+     * whose delivery window has opened by now is posted in the same wakeup and its own alarm is
+     * cancelled.
+     */
+    public void deliverScheduledNotification(Bundle bundle) {
+        String id = bundle.getString("id");
+        List<RNPushNotificationAttributes> due = mStore.getRange(Long.MIN_VALUE, System.currentTimeMillis() + 1);
+
+        List<String> ids = new ArrayList<>(due.size() + 1);
+        List<Bundle> bundles = new ArrayList<>(due.size() + 1);
+        ids.add(id);
+        bundles.add(bundle);
+        for (RNPushNotificationAttributes notificationAttributes : due) {
+            if (notificationAttributes.getId().equals(id)) {
+                continue;
+            }
+            Bundle dueBundle = notificationAttributes.toBundle();
+            getAlarmManager().cancel(getScheduleNotificationIntent(dueBundle));
+            ids.add(notificationAttributes.getId());
+            bundles.add(dueBundle);
+        }
+        mStore.removeAll(ids);
+
+        sendDueNotifications(bundles);
+    }
+
+    /**
+     * Switch between one alarm per notification and a single alarm for the next due one,
+     * moving the alarms of the notifications already scheduled over to the new mode.
+     */
+    public void setSchedulerMode(String mode) {
+        if (mode.equals(mConfig.getSchedulerMode())) {
+            return;
+        }
+        mConfig.setSchedulerMode(mode);
+
+        if (mConfig.isSingleAlarmScheduler()) {
+            for (String id : mStore.getAllIds()) {
+                Bundle b = new Bundle();
+                b.putString("id", id);
+                getAlarmManager().cancel(getScheduleNotificationIntent(b));
+            }
+            rearmSingleAlarm();
         } else {
-            editor.apply();
+            disarmSingleAlarm();
+            for (RNPushNotificationAttributes notificationAttributes : mStore.getAll()) {
+                sendNotificationScheduledCore(notificationAttributes.toBundle());
+            }
         }
     }
 
+    private void storeNotification(Bundle bundle) {
+        RNPushNotificationAttributes notificationAttributes = new RNPushNotificationAttributes();
+        notificationAttributes.fromBundle(bundle);
+        mStore.put(notificationAttributes);
+    }
+
     public void sendNotification(Bundle bundle) {
+        sendNotification(bundle, false, false);
+    }
+
+    /**
+     * Post the notification, first removing it from the store when removeFromStore is set,
+     * for the scheduled notifications that are already due.
+     */
+    private void sendNotification(Bundle bundle, boolean removeFromStore) {
+        sendNotification(bundle, removeFromStore, false);
+    }
+
+    /**
+     * Update a posted notification. Only the fields present in bundle are changed, on the
+     * builder kept from posting it, and the update does not alert the user again. When that
+     * builder is no longer around, bundle is merged over the notification as it was posted,
+     * or as it is stored while still scheduled, and the notification is built again in full.
+     *
+     * @return null when the notification was updated, or the reason it was not
+     */
+    public String updateNotification(Bundle bundle) {
+        String id = bundle.getString("id");
+        PostedNotification posted = id != null ? mPostedNotifications.get(id) : null;
+        if (posted == null) {
+            return updateNotificationInFull(bundle);
+        }
+
+        try {
+            synchronized (posted) {
+                NotificationCompat.Builder builder = posted.mBuilder;
+                if (bundle.containsKey("title")) {
+                    builder.setContentTitle(bundle.getString("title"));
+                }
+                if (bundle.containsKey("message")) {
+                    builder.setContentText(bundle.getString("message"));
+                }
+                if (bundle.containsKey("bigText")) {
+                    posted.mHasBigText = true;
+                    builder.setStyle(new NotificationCompat.BigTextStyle().bigText(bundle.getString("bigText")));
+                } else if (bundle.containsKey("message") && !posted.mHasBigText) {
+                    builder.setStyle(new NotificationCompat.BigTextStyle().bigText(bundle.getString("message")));
+                }
+                if (bundle.containsKey("subText")) {
+                    builder.setSubText(bundle.getString("subText"));
+                }
+                if (bundle.containsKey("ticker")) {
+                    builder.setTicker(bundle.getString("ticker"));
+                }
+                if (bundle.containsKey("number")) {
+                    builder.setNumber(getNumber(bundle));
+                }
+                if (bundle.containsKey("color") && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                    builder.setColor(Color.parseColor(bundle.getString("color")));
+                }
+                builder.setOnlyAlertOnce(true);
+                posted.mBundle.putAll(bundle);
+                Bundle extras = new Bundle();
+                extras.putBundle(EXTRA_NOTIFICATION, new Bundle(posted.mBundle));
+                builder.addExtras(extras);
+
+                long postNanos = System.nanoTime();
+                mNotificationManager.notify(posted.mTag, posted.mId, builder.build());
+                mMetrics.record(RNPushNotificationMetrics.POST, postNanos);
+            }
+        } catch (Exception e) {
+            mMetrics.increment(RNPushNotificationMetrics.POST_FAILED);
+            Log.e(TAG, "failed to update push notification", e);
+            return "Failed to update the notification: " + e.getMessage();
+        }
+        return null;
+    }
+
+    private String updateNotificationInFull(Bundle update) {
+        String id = update.getString("id");
+
+        Bundle shown = getShownBundle(id, update.getString("tag"));
+        if (shown != null) {
+            shown.putAll(update);
+            sendNotification(shown, false, true);
+            return null;
+        }
+
+        RNPushNotificationAttributes stored = id != null ? mStore.get(id) : null;
+        if (stored != null) {
+            // Not shown yet, the update applies once it is. The record holds the whole bundle
+            // it was scheduled with, data and userInfo included.
+            Bundle scheduled = stored.toBundle();
+            scheduled.putAll(update);
+            storeNotification(scheduled);
+            sendNotificationScheduledCore(scheduled);
+            return null;
+        }
+
+        Log.e("RNPushNotification", "No shown or scheduled notification to update with id " + id);
+        return "No shown or scheduled notification with id " + id;
+    }
+
+    /**
+     * A copy of the bundle the shown notification with this id and tag was posted from, or
+     * null when it is not shown. Shown notifications cannot be listed before Android M.
+     */
+    private Bundle getShownBundle(String id, String tag) {
+        if (id == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return null;
+        }
+
+        int notificationID;
+        try {
+            notificationID = Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        for (StatusBarNotification shown : mNotificationManager.getActiveNotifications()) {
+            if (shown.getId() != notificationID || (tag != null && !tag.equals(shown.getTag()))) {
+                continue;
+            }
+            Bundle extras = shown.getNotification().extras;
+            Bundle posted = extras != null ? extras.getBundle(EXTRA_NOTIFICATION) : null;
+            if (posted != null) {
+                return new Bundle(posted);
+            }
+        }
+        return null;
+    }
+
+    private static int getNumber(Bundle bundle) {
+        Object number = bundle.get("number");
+        if (number instanceof String) {
+            Log.w(TAG, "'number' field set as a string instead of an int");
+            return Integer.parseInt((String) number);
+        }
+        return (int) bundle.getDouble("number");
+    }
+
+    private void sendNotification(Bundle bundle, boolean removeFromStore, boolean onlyAlertOnce) {
+        long startNanos = System.nanoTime();
         try {
         	Class intentClass = getMainActivityClass();
         	if (intentClass == null) {
@@ -160,13 +579,9 @@ public class RNPushNotificationHelper {
             	return;
         	}
 
-            Resources res = mContext.getResources();
-            String packageName = mContext.getPackageName();
-
             String title = bundle.getString("title");
             if (title == null) {
-                ApplicationInfo appInfo = mContext.getApplicationInfo();
-                title = mContext.getPackageManager().getApplicationLabel(appInfo).toString();
+                title = getApplicationLabel();
             }
 
         	NotificationCompat.Builder notification = new NotificationCompat.Builder(mContext)
@@ -181,6 +596,15 @@ public class RNPushNotificationHelper {
                 notification.setGroup(group);
             }
 
+            Bundle postedBundle = new Bundle(bundle);
+            Bundle extras = new Bundle();
+            extras.putBundle(EXTRA_NOTIFICATION, postedBundle);
+            String cancelCategory = bundle.getString("cancelCategory");
+            if (cancelCategory != null) {
+                extras.putString(EXTRA_CANCEL_CATEGORY, cancelCategory);
+            }
+            notification.addExtras(extras);
+
             notification.setContentText(bundle.getString("message"));
 
             String largeIcon = bundle.getString("largeIcon");
@@ -192,48 +616,18 @@ public class RNPushNotificationHelper {
             }
 
             if (bundle.containsKey("number")) {
-                try {
-                    int number = (int) bundle.getDouble("number");
-                    notification.setNumber(number);
-                } catch (Exception e) {
-                    String numberAsString = bundle.getString("number");
-                    if(numberAsString != null) {
-                        int number = Integer.parseInt(numberAsString);
-                        notification.setNumber(number);
-                        Log.w(TAG, "'number' field set as a string instead of an int");
-                    }
-                }
-            }
-
-            int smallIconResId;
-            int largeIconResId;
-
-            String smallIcon = bundle.getString("smallIcon");
-
-            if (smallIcon != null) {
-                smallIconResId = res.getIdentifier(smallIcon, "mipmap", packageName);
-            } else {
-                smallIconResId = res.getIdentifier("ic_notification", "mipmap", packageName);
-            }
-
-            if (smallIconResId == 0) {
-                smallIconResId = res.getIdentifier("ic_launcher", "mipmap", packageName);
-
-            	if (smallIconResId == 0) {
-                	smallIconResId = android.R.drawable.ic_dialog_info;
-            	}
-            }
-
-            if (largeIcon != null) {
-                largeIconResId = res.getIdentifier(largeIcon, "mipmap", packageName);
-            } else {
-                largeIconResId = res.getIdentifier("ic_launcher", "mipmap", packageName);
+                notification.setNumber(getNumber(bundle));
             }
 
-            Bitmap largeIconBitmap = BitmapFactory.decodeResource(res, largeIconResId);
+            int smallIconResId = getSmallIconResId(bundle.getString("smallIcon"));
+            int largeIconResId = mIconCache.getMipmapId(largeIcon != null ? largeIcon : "ic_launcher");
 
+            // Only decode the large icon when it is actually shown.
             if (largeIconResId != 0 && (largeIcon != null || android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.LOLLIPOP)) {
-                notification.setLargeIcon(largeIconBitmap);
+                Bitmap largeIconBitmap = mIconCache.getLargeIcon(largeIconResId);
+                if (largeIconBitmap != null) {
+                    notification.setLargeIcon(largeIconBitmap);
+                }
             }
 
             notification.setSmallIcon(smallIconResId);
@@ -267,26 +661,15 @@ public class RNPushNotificationHelper {
                 }
             }
 
-            int notificationID = (int) System.currentTimeMillis();
-            if (bundle.containsKey("id")) {
-                try {
-                    notificationID = (int) bundle.getDouble("id");
-                } catch (Exception e) {
-                    String notificationIDString = bundle.getString("id");
-
-                    if (notificationIDString != null) {
-                        try {
-                            notificationID = Integer.parseInt(notificationIDString);
-                        } catch (NumberFormatException nfe) {
-                            Log.w(TAG, "'id' field could not be converted to an int, ignoring it", nfe);
-                        }
-                    }
-                }
+            // Ids are strings, Bundle.getDouble would only return 0 for them.
+            int notificationID;
+            try {
+                notificationID = Integer.parseInt(bundle.getString("id"));
+            } catch (NumberFormatException e) {
+                Log.w(TAG, "'id' field could not be converted to an int, ignoring it", e);
+                notificationID = (int) System.currentTimeMillis();
             }
 
-            NotificationManager notificationManager =
-                    (NotificationManager) mContext.getSystemService(Context.NOTIFICATION_SERVICE);
-
             PendingIntent pendingIntent = PendingIntent.getActivity(mContext, notificationID, intent,
                     PendingIntent.FLAG_UPDATE_CURRENT);
 
@@ -324,89 +707,366 @@ public class RNPushNotificationHelper {
                         continue;
                     }
 
-                    Intent actionIntent = new Intent();
+                    // Target the receiver explicitly instead of broadcasting the tap to every app.
+                    Intent actionIntent = new Intent(mContext, RNPushNotificationActionReceiver.class);
                     actionIntent.setAction(action);
-                    // Add "action" for later identifying which button gets pressed.
-                    bundle.putString("action", action);
-                    actionIntent.putExtra("notification", bundle);
-                    PendingIntent pendingActionIntent = PendingIntent.getBroadcast(mContext, notificationID, actionIntent,
-                            PendingIntent.FLAG_UPDATE_CURRENT);
+                    // Each action gets its own copy, with "action" for later identifying which button gets pressed.
+                    Bundle actionBundle = new Bundle(bundle);
+                    actionBundle.putString("action", action);
+                    actionIntent.putExtra("notification", actionBundle);
+                    PendingIntent pendingActionIntent = PendingIntent.getBroadcast(mContext,
+                            getActionRequestCode(notificationID, i), actionIntent, getActionIntentFlags());
                     notification.addAction(icon, action, pendingActionIntent);
                 }
             }
 
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                // Select channel
-                String channel_id = mContext.getPackageName() + (isSilence ? this.SILENCE_CHANNEL_ID : this.CHANNEL_ID);
-                String channel_name = isSilence ? this.SILENCE_CHANNEL_NAME : this.CHANNEL_NAME;
-                // Create or update.
-                NotificationChannel channel = new NotificationChannel(
-                    channel_id,
-                    channel_name,
-                    NotificationManager.IMPORTANCE_DEFAULT
-                );
-                if (!isSilence) {
-                    channel.enableLights(true);
-                    channel.setLightColor(Color.GREEN);
-                    channel.enableVibration(true);
-                    channel.setLockscreenVisibility(Notification.VISIBILITY_SECRET);
-                    Uri defaultSoundUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
-                    channel.setSound(defaultSoundUri, null);
-                } else {
-                    channel.enableLights(true);
-                    channel.setLightColor(Color.GREEN);
-                    channel.setLockscreenVisibility(Notification.VISIBILITY_SECRET);
-                    channel.enableVibration(false);
-                    channel.setSound(null, null);
+                // Assign channel to notification
+                String channelId = bundle.getString("channelId");
+                if (channelId != null && !mChannels.hasChannel(channelId)) {
+                    Log.w(TAG, "Notification channel " + channelId + " does not exist, using the default channel");
+                    channelId = null;
                 }
+                notification.setChannelId(channelId != null ? channelId : mChannels.getDefaultChannel(isSilence));
+            }
 
-                notificationManager.createNotificationChannel(channel);
-                // Assign channel to notification
-                notification.setChannelId(channel_id);
+            if (onlyAlertOnce) {
+                notification.setOnlyAlertOnce(true);
             }
 
             Notification info = notification.build();
             info.defaults |= Notification.DEFAULT_LIGHTS;
+            mMetrics.record(RNPushNotificationMetrics.BUILD, startNanos);
 
-            if(mSharedPreferences.getString(Integer.toString(notificationID), null) != null) {
-                SharedPreferences.Editor editor = mSharedPreferences.edit();
-                editor.remove(Integer.toString(notificationID));
-                commitPreferences(editor);
+            if (removeFromStore) {
+                mStore.remove(bundle.getString("id"));
             }
 
-            if (bundle.containsKey("tag")) {
-                String tag = bundle.getString("tag");
-                notificationManager.notify(tag, notificationID, info);
+            String tag = bundle.getString("tag");
+            mPostedNotifications.put(bundle.getString("id"), new PostedNotification(notification, postedBundle,
+                    tag, notificationID, group, cancelCategory, bundle.getString("bigText") != null));
+
+            long postNanos = System.nanoTime();
+            if (tag != null) {
+                mNotificationManager.notify(tag, notificationID, info);
             } else {
-                notificationManager.notify(notificationID, info);
+                mNotificationManager.notify(notificationID, info);
+            }
+            mMetrics.record(RNPushNotificationMetrics.POST, postNanos);
+
+            // Updates are not new notifications and do not count towards their group.
+            if (group != null && !onlyAlertOnce) {
+                mGroupSummarizer.add(group, tag, notificationID, bundle.getString("message"));
             }
         } catch (Exception e) {
+            mMetrics.increment(RNPushNotificationMetrics.POST_FAILED);
             Log.e(TAG, "failed to send push notification", e);
         }
     }
 
+    /**
+     * Request code of the i-th action of a notification, distinct from the other actions so
+     * their PendingIntents do not replace each other.
+     */
+    private static int getActionRequestCode(int notificationID, int i) {
+        return notificationID * 31 + i + 1;
+    }
+
+    private static int getActionIntentFlags() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            return PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE;
+        }
+        return PendingIntent.FLAG_UPDATE_CURRENT;
+    }
+
+    private int getSmallIconResId(String smallIcon) {
+        int smallIconResId;
+
+        if (smallIcon != null) {
+            smallIconResId = mIconCache.getMipmapId(smallIcon);
+        } else {
+            smallIconResId = mIconCache.getMipmapId("ic_notification");
+        }
+
+        if (smallIconResId == 0) {
+            smallIconResId = mIconCache.getMipmapId("ic_launcher");
+
+            if (smallIconResId == 0) {
+                smallIconResId = android.R.drawable.ic_dialog_info;
+            }
+        }
+
+        return smallIconResId;
+    }
+
+    /**
+     * Post notifications that came due in the same wakeup. When several of them land
+     * together, the ones without a group of their own are bundled under one summary.
+     */
+    private void sendDueNotifications(List<Bundle> bundles) {
+        boolean summarize = bundles.size() > 1;
+
+        for (Bundle bundle : bundles) {
+            if (summarize && bundle.getString("group") == null) {
+                bundle.putString("group", SCHEDULED_GROUP);
+            }
+            sendNotification(bundle, false);
+        }
+    }
+
+    /**
+     * Called when the summary of group was dismissed: start counting its notifications afresh.
+     */
+    public void onGroupDismissed(String group) {
+        mGroupSummarizer.reset(group);
+    }
+
+    /**
+     * Post one notification standing for count overdue notifications, listing the first
+     * lines, instead of posting each of them.
+     */
+    public void sendOverdueSummary(int count, List<String> lines) {
+        sendSummaryNotification(null, OVERDUE_TAG, count, lines);
+    }
+
+    /**
+     * Post an InboxStyle notification summarizing count notifications. With a group it is
+     * that group's silent summary, without one it is a standalone notification.
+     */
+    private void sendSummaryNotification(String group, String tag, int count, List<String> lines) {
+        try {
+            Class intentClass = getMainActivityClass();
+            if (intentClass == null) {
+                Log.e("RNPushNotification", "No activity class found for the notification");
+                return;
+            }
+
+            NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+            for (int i = 0; i < lines.size() && i < MAX_SUMMARY_LINES; i++) {
+                style.addLine(lines.get(i));
+            }
+            int shown = Math.min(lines.size(), MAX_SUMMARY_LINES);
+            if (count > shown) {
+                style.setSummaryText("+" + (count - shown) + " more");
+            }
+
+            String title = getApplicationLabel();
+
+            Intent intent = new Intent(mContext, intentClass);
+            intent.addFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
+            PendingIntent pendingIntent = PendingIntent.getActivity(mContext, SUMMARY_NOTIFICATION_ID, intent,
+                    PendingIntent.FLAG_UPDATE_CURRENT);
+
+            NotificationCompat.Builder summary = new NotificationCompat.Builder(mContext)
+                    .setContentTitle(title)
+                    .setContentText(count + " notifications")
+                    .setNumber(count)
+                    .setSmallIcon(getSmallIconResId(null))
+                    .setStyle(style)
+                    .setAutoCancel(true)
+                    .setContentIntent(pendingIntent);
+            Bundle extras = new Bundle();
+            extras.putBoolean(EXTRA_SUMMARY, true);
+            summary.addExtras(extras);
+
+            if (group != null) {
+                Intent dismissIntent = new Intent(mContext, RNPushNotificationPublisher.class);
+                dismissIntent.setAction(RNPushNotificationPublisher.ACTION_GROUP_DISMISSED);
+                dismissIntent.putExtra(RNPushNotificationPublisher.GROUP, group);
+                summary.setGroup(group)
+                        .setGroupSummary(true)
+                        .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_CHILDREN)
+                        .setDeleteIntent(PendingIntent.getBroadcast(mContext, group.hashCode(), dismissIntent,
+                                PendingIntent.FLAG_UPDATE_CURRENT));
+            }
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                summary.setChannelId(mChannels.getDefaultChannel(group != null));
+            }
+
+            mNotificationManager.notify(tag, SUMMARY_NOTIFICATION_ID, summary.build());
+        } catch (Exception e) {
+            Log.e(TAG, "failed to send group summary notification", e);
+        }
+    }
+
+    /**
+     * Cancel every scheduled notification, with a single store write, and remove the
+     * notifications this library posted from the notification drawer. Notifications the
+     * app posted on its own are left alone.
+     */
     public void cancelAll() {
-        Set<String> ids = mSharedPreferences.getAll().keySet();
+        long startNanos = System.nanoTime();
+
+        if (mConfig.isSingleAlarmScheduler()) {
+            disarmSingleAlarm();
+        } else {
+            cancelAlarms(mStore.getAllIds());
+        }
+        mStore.clear();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            for (StatusBarNotification shown : mNotificationManager.getActiveNotifications()) {
+                if (isOwnNotification(shown.getNotification())) {
+                    mNotificationManager.cancel(shown.getTag(), shown.getId());
+                }
+            }
+        }
+        // Before Android M, only the notifications posted by this process are known.
+        for (PostedNotification posted : mPostedNotifications.snapshot().values()) {
+            mNotificationManager.cancel(posted.mTag, posted.mId);
+        }
+        for (String group : mGroupSummarizer.clear()) {
+            mNotificationManager.cancel(group, SUMMARY_NOTIFICATION_ID);
+        }
+        mNotificationManager.cancel(OVERDUE_TAG, SUMMARY_NOTIFICATION_ID);
+        mPostedNotifications.evictAll();
+        mMetrics.record(RNPushNotificationMetrics.CANCEL, startNanos);
+    }
+
+    /**
+     * Cancel the scheduled and shown notifications with this tag.
+     */
+    public void cancelByTag(final String tag) {
+        long startNanos = System.nanoTime();
+        cancelAlarms(mStore.removeByTag(tag));
+        cancelShown(new ShownFilter() {
+            @Override
+            public boolean matches(String shownTag, String group, String cancelCategory) {
+                return tag.equals(shownTag);
+            }
+        });
+        mMetrics.record(RNPushNotificationMetrics.CANCEL, startNanos);
+    }
+
+    /**
+     * Cancel the scheduled and shown notifications of this group, along with its summary.
+     */
+    public void cancelByGroup(final String group) {
+        long startNanos = System.nanoTime();
+        cancelAlarms(mStore.removeByGroup(group));
+        cancelShown(new ShownFilter() {
+            @Override
+            public boolean matches(String tag, String shownGroup, String cancelCategory) {
+                return group.equals(shownGroup);
+            }
+        });
+        mNotificationManager.cancel(group, SUMMARY_NOTIFICATION_ID);
+        mGroupSummarizer.reset(group);
+        mMetrics.record(RNPushNotificationMetrics.CANCEL, startNanos);
+    }
+
+    /**
+     * Cancel the scheduled and shown notifications with this cancel category.
+     */
+    public void cancelByCancelCategory(final String cancelCategory) {
+        long startNanos = System.nanoTime();
+        cancelAlarms(mStore.removeByCancelCategory(cancelCategory));
+        cancelShown(new ShownFilter() {
+            @Override
+            public boolean matches(String tag, String group, String shownCancelCategory) {
+                return cancelCategory.equals(shownCancelCategory);
+            }
+        });
+        mMetrics.record(RNPushNotificationMetrics.CANCEL, startNanos);
+    }
+
+    /**
+     * Cancel the alarms of notifications already removed from the store. The single alarm
+     * is left armed, it re-arms itself for the next notification when it goes off.
+     */
+    private void cancelAlarms(List<String> ids) {
+        if (mConfig.isSingleAlarmScheduler()) {
+            return;
+        }
+        Bundle bundle = new Bundle();
+        for (String id : ids) {
+            bundle.putString("id", id);
+            getAlarmManager().cancel(getScheduleNotificationIntent(bundle));
+        }
+    }
+
+    private interface ShownFilter {
+        boolean matches(String tag, String group, String cancelCategory);
+    }
+
+    /**
+     * Cancel the shown notifications matching filter. Before Android M the shown notifications
+     * cannot be listed, only the ones posted last by this process are found.
+     */
+    /**
+     * Whether this library posted the notification, rather than the app on its own.
+     */
+    private static boolean isOwnNotification(Notification notification) {
+        Bundle extras = notification.extras;
+        return extras != null && (extras.containsKey(EXTRA_NOTIFICATION) || extras.getBoolean(EXTRA_SUMMARY));
+    }
+
+    private void cancelShown(ShownFilter filter) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            for (StatusBarNotification shown : mNotificationManager.getActiveNotifications()) {
+                Notification notification = shown.getNotification();
+                if (!isOwnNotification(notification)) {
+                    continue;
+                }
+                String cancelCategory = notification.extras != null ?
+                        notification.extras.getString(EXTRA_CANCEL_CATEGORY) : null;
+                if (filter.matches(shown.getTag(), notification.getGroup(), cancelCategory)) {
+                    mNotificationManager.cancel(shown.getTag(), shown.getId());
+                }
+            }
+        }
 
-        for (String id: ids) {
-            Bundle b = new Bundle();
-            b.putString("id", id);
-            this.cancelNotification(b);
+        for (Map.Entry<String, PostedNotification> entry : mPostedNotifications.snapshot().entrySet()) {
+            PostedNotification posted = entry.getValue();
+            if (filter.matches(posted.mTag, posted.mGroup, posted.mCancelCategory)) {
+                mNotificationManager.cancel(posted.mTag, posted.mId);
+                mPostedNotifications.remove(entry.getKey());
+            }
         }
     }
 
     public void cancelNotification(Bundle bundle) {
-        NotificationManager notificationManager =
-                (NotificationManager) mContext.getSystemService(Context.NOTIFICATION_SERVICE);
+        long startNanos = System.nanoTime();
 
         String notificationIDString = bundle.getString("id");
 
-        notificationManager.cancel(Integer.parseInt(notificationIDString));
+        // Notifications posted with a tag are only cancelled along with it.
+        PostedNotification posted = mPostedNotifications.remove(notificationIDString);
+        String tag = bundle.containsKey("tag") ? bundle.getString("tag") : posted != null ? posted.mTag : null;
+        mNotificationManager.cancel(tag, Integer.parseInt(notificationIDString));
+        if (posted != null && posted.mGroup != null) {
+            mGroupSummarizer.remove(posted.mGroup, tag, posted.mId);
+        }
+
+        // The single alarm is left armed, it re-arms itself for the next notification when it goes off.
+        if (!mConfig.isSingleAlarmScheduler()) {
+            getAlarmManager().cancel(getScheduleNotificationIntent(bundle));
+        }
 
-        getAlarmManager().cancel(getScheduleNotificationIntent(bundle));
+        mStore.remove(notificationIDString);
+        mMetrics.record(RNPushNotificationMetrics.CANCEL, startNanos);
+    }
 
-        SharedPreferences.Editor editor = mSharedPreferences.edit();
-        editor.remove(notificationIDString);
-        commitPreferences(editor);
+    private static class PostedNotification {
+        final NotificationCompat.Builder mBuilder;
+        // The bundle it was posted from, with the updates since applied.
+        final Bundle mBundle;
+        final String mTag;
+        final int mId;
+        final String mGroup;
+        final String mCancelCategory;
+        boolean mHasBigText;
+
+        PostedNotification(NotificationCompat.Builder builder, Bundle bundle, String tag, int id, String group,
+                           String cancelCategory, boolean hasBigText) {
+            mBuilder = builder;
+            mBundle = bundle;
+            mTag = tag;
+            mId = id;
+            mGroup = group;
+            mCancelCategory = cancelCategory;
+            mHasBigText = hasBigText;
+        }
     }
 }
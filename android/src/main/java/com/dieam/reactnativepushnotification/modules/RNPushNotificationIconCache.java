@@ -0,0 +1,109 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.LruCache;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process wide cache of notification icons.
+ *
+ * Resources.getIdentifier is a slow, reflection based lookup, so resolved names are
+ * kept, misses included. Large icons are decoded at most once, down-sampled to the
+ * size the system shows them at, and kept in an LRU bounded by memory.
+ */
+public class RNPushNotificationIconCache {
+    private static final int MAX_BITMAP_CACHE_BYTES = 4 * 1024 * 1024;
+
+    private static RNPushNotificationIconCache sInstance;
+
+    private final Resources mResources;
+    private final String mPackageName;
+    private final ConcurrentHashMap<String, Integer> mResourceIds = new ConcurrentHashMap<>();
+    private final LruCache<Integer, Bitmap> mLargeIcons;
+    private final int mLargeIconWidth;
+    private final int mLargeIconHeight;
+
+    public static synchronized RNPushNotificationIconCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new RNPushNotificationIconCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private RNPushNotificationIconCache(Context context) {
+        mResources = context.getResources();
+        mPackageName = context.getPackageName();
+        mLargeIconWidth = mResources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width);
+        mLargeIconHeight = mResources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height);
+
+        int budget = (int) Math.min(MAX_BITMAP_CACHE_BYTES, Runtime.getRuntime().maxMemory() / 64);
+        mLargeIcons = new LruCache<Integer, Bitmap>(budget) {
+            @Override
+            protected int sizeOf(Integer resId, Bitmap bitmap) {
+                return bitmap.getRowBytes() * bitmap.getHeight();
+            }
+        };
+    }
+
+    /**
+     * Id of the mipmap resource with the given name, or 0 when there is none.
+     */
+    public int getMipmapId(String name) {
+        Integer resId = mResourceIds.get(name);
+        if (resId == null) {
+            resId = mResources.getIdentifier(name, "mipmap", mPackageName);
+            mResourceIds.put(name, resId);
+        }
+        return resId;
+    }
+
+    /**
+     * The resource decoded at the large notification icon size, or null when it cannot be decoded.
+     */
+    public Bitmap getLargeIcon(int resId) {
+        Bitmap bitmap = mLargeIcons.get(resId);
+        if (bitmap != null) {
+            return bitmap;
+        }
+
+        bitmap = decodeLargeIcon(resId);
+        if (bitmap != null) {
+            mLargeIcons.put(resId, bitmap);
+        }
+        return bitmap;
+    }
+
+    private Bitmap decodeLargeIcon(int resId) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(mResources, resId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= mLargeIconWidth &&
+                options.outHeight / (sampleSize * 2) >= mLargeIconHeight) {
+            sampleSize *= 2;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        Bitmap bitmap = BitmapFactory.decodeResource(mResources, resId, options);
+        if (bitmap == null) {
+            return null;
+        }
+
+        if (mLargeIconWidth > 0 && mLargeIconHeight > 0 &&
+                (bitmap.getWidth() > mLargeIconWidth || bitmap.getHeight() > mLargeIconHeight)) {
+            float scale = Math.min((float) mLargeIconWidth / bitmap.getWidth(), (float) mLargeIconHeight / bitmap.getHeight());
+            bitmap = Bitmap.createScaledBitmap(bitmap, Math.round(bitmap.getWidth() * scale),
+                    Math.round(bitmap.getHeight() * scale), true);
+        }
+        return bitmap;
+    }
+}
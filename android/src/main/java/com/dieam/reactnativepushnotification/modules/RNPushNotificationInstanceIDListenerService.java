@@ -0,0 +1,16 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import com.google.android.gms.iid.InstanceIDListenerService;
+
+/**
+ * Registers again when InstanceID invalidates the token, for example after the app data
+ * was restored on another device.
+ */
+public class RNPushNotificationInstanceIDListenerService extends InstanceIDListenerService {
+
+    @Override
+    public void onTokenRefresh() {
+        RNPushNotificationRegistration.getInstance(this).invalidate();
+        RNPushNotificationRegistrationService.enqueue(this);
+    }
+}
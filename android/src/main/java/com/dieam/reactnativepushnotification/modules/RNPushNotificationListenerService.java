@@ -2,10 +2,7 @@ package com.dieam.reactnativepushnotification.modules;
 
 import android.content.Intent;
 import android.os.Bundle;
-import android.app.ActivityManager;
-import android.app.ActivityManager.RunningAppProcessInfo;
 
-import java.util.List;
 import java.util.Random;
 
 import com.google.android.gms.gcm.GcmListenerService;
@@ -13,7 +10,6 @@ import com.google.android.gms.gcm.GcmListenerService;
 import org.json.JSONObject;
 
 public class RNPushNotificationListenerService extends GcmListenerService {
-
     @Override
     public void onMessageReceived(String from, Bundle bundle) {
         JSONObject data = getPushData(bundle.getString("data"));
@@ -38,6 +34,10 @@ public class RNPushNotificationListenerService extends GcmListenerService {
     }
 
     private void sendNotification(Bundle bundle) {
+        RNPushNotificationAdmission admission = RNPushNotificationAdmission.getInstance(this);
+        if (admission.isDuplicate(bundle)) {
+            return;
+        }
 
         // If notification ID is not provided by the user, generate one at random
         if ( bundle.getString("id") == null ) {
@@ -45,31 +45,25 @@ public class RNPushNotificationListenerService extends GcmListenerService {
             bundle.putString("id", String.valueOf(randomNumberGenerator.nextInt()));
         }
 
-        Boolean isRunning = isApplicationRunning();
+        boolean isRunning = RNPushNotificationForegroundTracker.getInstance(this).isForeground();
 
         Intent intent = new Intent("RNPushNotificationReceiveNotification");
         bundle.putBoolean("foreground", isRunning);
         bundle.putBoolean("userInteraction", false);
-        intent.putExtra("notification", bundle);
-        sendBroadcast(intent);
+        // A copy, the bundle is still changed below while the module reads it.
+        intent.putExtra("notification", new Bundle(bundle));
+        RNPushNotificationEventBus.send(this, intent);
 
-        if (!isRunning) {
-            new RNPushNotificationHelper(getApplication()).sendNotification(bundle);
+        // Nobody is listening, keep the event until JS runs.
+        RNPushNotificationEventBuffer eventBuffer = RNPushNotificationEventBuffer.getInstance(this);
+        if (!eventBuffer.hasModule()) {
+            eventBuffer.add("remoteNotificationReceived", RNPushNotificationBundleConverter.toJson(bundle));
         }
-    }
 
-    private boolean isApplicationRunning() {
-        ActivityManager activityManager = (ActivityManager) this.getSystemService(ACTIVITY_SERVICE);
-        List<RunningAppProcessInfo> processInfos = activityManager.getRunningAppProcesses();
-        for (ActivityManager.RunningAppProcessInfo processInfo : processInfos) {
-            if (processInfo.processName.equals(getApplication().getPackageName())) {
-                if (processInfo.importance == ActivityManager.RunningAppProcessInfo.IMPORTANCE_FOREGROUND) {
-                    for (String d : processInfo.pkgList) {
-                        return true;
-                    }
-                }
-            }
+        if (!isRunning) {
+            // Posted before returning, while GCM still holds its wake lock. This already runs
+            // off the main thread.
+            admission.submit(bundle);
         }
-        return false;
     }
 }
@@ -0,0 +1,186 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.os.Bundle;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and latency histograms of the notification pipeline, for the whole process.
+ *
+ * Recording is a few atomic increments with no allocation or locking, so metrics are
+ * always on. Latencies go into power of two buckets of microseconds, which makes the
+ * percentiles of a snapshot upper bounds within a factor of two.
+ */
+public class RNPushNotificationMetrics {
+    /** Building a notification, from its bundle to the Notification. */
+    public static final int BUILD = 0;
+    /** Handing a notification to NotificationManager. */
+    public static final int POST = 1;
+    /** Persisting and arming one scheduling call, single or batch. */
+    public static final int SCHEDULE = 2;
+    /** Cancelling one notification. */
+    public static final int CANCEL = 3;
+    /** Emitting one event, or one batch of events, over the bridge. */
+    public static final int EMIT = 4;
+
+    private static final String[] TIMER_NAMES = {"build", "post", "schedule", "cancel", "emit"};
+
+    /** Notifications scheduled, over all scheduling calls. */
+    public static final int SCHEDULED = 0;
+    /** Notifications that failed to post. */
+    public static final int POST_FAILED = 1;
+    /** Notifications only shown in their group's summary. */
+    public static final int SUMMARIZED = 2;
+    /** Events not emitted because the catalyst instance was inactive. */
+    public static final int EMIT_DROPPED = 3;
+    /** Events kept for JS in the event buffer. */
+    public static final int EVENTS_BUFFERED = 4;
+    /** Tasks rejected by a full executor lane. */
+    public static final int QUEUE_REJECTED = 5;
+
+    private static final String[] COUNTER_NAMES = {"scheduled", "postFailed", "summarized", "emitDropped", "eventsBuffered",
+            "queueRejected"};
+
+    private static final RNPushNotificationMetrics sInstance = new RNPushNotificationMetrics();
+
+    private final Histogram[] mTimers = new Histogram[TIMER_NAMES.length];
+    private final AtomicLongArray mCounters = new AtomicLongArray(COUNTER_NAMES.length);
+
+    public static RNPushNotificationMetrics getInstance() {
+        return sInstance;
+    }
+
+    private RNPushNotificationMetrics() {
+        for (int i = 0; i < mTimers.length; i++) {
+            mTimers[i] = new Histogram();
+        }
+    }
+
+    /**
+     * Record the time elapsed since startNanos, a System.nanoTime() value, in timer.
+     */
+    public void record(int timer, long startNanos) {
+        mTimers[timer].add((System.nanoTime() - startNanos) / 1000);
+    }
+
+    /**
+     * Zero every timer and counter.
+     */
+    void reset() {
+        for (Histogram timer : mTimers) {
+            timer.reset();
+        }
+        for (int i = 0; i < mCounters.length(); i++) {
+            mCounters.set(i, 0);
+        }
+    }
+
+    public void increment(int counter) {
+        mCounters.incrementAndGet(counter);
+    }
+
+    public void add(int counter, long delta) {
+        mCounters.addAndGet(counter, delta);
+    }
+
+    /**
+     * Timers, as count, meanMs, maxMs, p50Ms, p90Ms and p99Ms, and counters.
+     */
+    public Bundle getSnapshot() {
+        Bundle timers = new Bundle();
+        for (int i = 0; i < mTimers.length; i++) {
+            timers.putBundle(TIMER_NAMES[i], mTimers[i].getSnapshot());
+        }
+        Bundle counters = new Bundle();
+        for (int i = 0; i < COUNTER_NAMES.length; i++) {
+            counters.putLong(COUNTER_NAMES[i], mCounters.get(i));
+        }
+
+        Bundle snapshot = new Bundle();
+        snapshot.putBundle("timers", timers);
+        snapshot.putBundle("counters", counters);
+        return snapshot;
+    }
+
+    /**
+     * One line per timer and one for the counters, for logcat.
+     */
+    public String describe() {
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < mTimers.length; i++) {
+            Bundle timer = mTimers[i].getSnapshot();
+            description.append(TIMER_NAMES[i])
+                    .append(": count=").append(timer.getLong("count"))
+                    .append(" mean=").append(timer.getDouble("meanMs"))
+                    .append("ms p50<").append(timer.getDouble("p50Ms"))
+                    .append("ms p99<").append(timer.getDouble("p99Ms"))
+                    .append("ms max=").append(timer.getDouble("maxMs"))
+                    .append("ms\n");
+        }
+        for (int i = 0; i < COUNTER_NAMES.length; i++) {
+            description.append(i == 0 ? "" : " ").append(COUNTER_NAMES[i]).append('=').append(mCounters.get(i));
+        }
+        return description.toString();
+    }
+
+    private static class Histogram {
+        // Bucket i holds durations below 2^i microseconds, the last one everything above.
+        private static final int BUCKETS = 24;
+
+        private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong mCount = new AtomicLong();
+        private final AtomicLong mSum = new AtomicLong();
+        private final AtomicLong mMax = new AtomicLong();
+
+        void add(long micros) {
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, micros)));
+            mBuckets.incrementAndGet(bucket);
+            mCount.incrementAndGet();
+            mSum.addAndGet(micros);
+            long max = mMax.get();
+            while (micros > max && !mMax.compareAndSet(max, micros)) {
+                max = mMax.get();
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                mBuckets.set(i, 0);
+            }
+            mCount.set(0);
+            mSum.set(0);
+            mMax.set(0);
+        }
+
+        Bundle getSnapshot() {
+            long count = mCount.get();
+            Bundle snapshot = new Bundle();
+            snapshot.putLong("count", count);
+            snapshot.putDouble("meanMs", count > 0 ? mSum.get() / 1000.0 / count : 0);
+            snapshot.putDouble("maxMs", mMax.get() / 1000.0);
+            snapshot.putDouble("p50Ms", getPercentile(count, 0.5));
+            snapshot.putDouble("p90Ms", getPercentile(count, 0.9));
+            snapshot.putDouble("p99Ms", getPercentile(count, 0.99));
+            return snapshot;
+        }
+
+        /**
+         * Upper bound of the bucket holding the percentile, in milliseconds, capped by the max.
+         */
+        private double getPercentile(long count, double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += mBuckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(1L << i, mMax.get()) / 1000.0;
+                }
+            }
+            return mMax.get() / 1000.0;
+        }
+    }
+}
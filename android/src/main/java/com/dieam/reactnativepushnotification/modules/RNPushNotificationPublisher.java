@@ -1,6 +1,5 @@
 package com.dieam.reactnativepushnotification.modules;
 
-import android.app.Application;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
@@ -8,12 +7,59 @@ import android.util.Log;
 
 public class RNPushNotificationPublisher extends BroadcastReceiver {
     final static String NOTIFICATION_ID = "notificationId";
+    final static String ACTION_DELIVER_DUE = "com.dieam.reactnativepushnotification.DELIVER_DUE";
+    final static String ACTION_GROUP_DISMISSED = "com.dieam.reactnativepushnotification.GROUP_DISMISSED";
+    final static String ACTION_REGISTER = "com.dieam.reactnativepushnotification.REGISTER";
+    final static String ACTION_POST_DEFERRED = "com.dieam.reactnativepushnotification.POST_DEFERRED";
+    final static String GROUP = "group";
+
+    /** Executor key shared by all scheduled deliveries, so they never race each other over the store. */
+    final static String SCHEDULER_KEY = "RNPushNotificationScheduler";
 
     @Override
-    public void onReceive(Context context, Intent intent) {
+    public void onReceive(Context context, final Intent intent) {
+        final RNPushNotificationHelper helper = RNPushNotificationHelper.getInstance(context);
+
+        if (ACTION_DELIVER_DUE.equals(intent.getAction())) {
+            Log.i("ReactSystemNotification", "NotificationPublisher: Delivering due notifications, Now Time: " + System.currentTimeMillis());
+            RNPushNotificationExecutor.getInstance().execute(SCHEDULER_KEY, new Runnable() {
+                @Override
+                public void run() {
+                    helper.deliverDueNotifications();
+                }
+            }, goAsync());
+            return;
+        }
+
+        if (ACTION_POST_DEFERRED.equals(intent.getAction())) {
+            final RNPushNotificationAdmission admission = RNPushNotificationAdmission.getInstance(context);
+            RNPushNotificationExecutor.getInstance().execute(intent.getStringExtra("id"), new Runnable() {
+                @Override
+                public void run() {
+                    admission.postDeferred(intent.getExtras());
+                }
+            }, goAsync());
+            return;
+        }
+
+        if (ACTION_REGISTER.equals(intent.getAction())) {
+            RNPushNotificationRegistrationService.enqueue(context);
+            return;
+        }
+
+        if (ACTION_GROUP_DISMISSED.equals(intent.getAction())) {
+            helper.onGroupDismissed(intent.getStringExtra(GROUP));
+            return;
+        }
+
         int id = intent.getIntExtra(NOTIFICATION_ID, 0);
         long currentTime = System.currentTimeMillis();
         Log.i("ReactSystemNotification", "NotificationPublisher: Prepare To Publish: " + id + ", Now Time: " + currentTime);
-        new RNPushNotificationHelper((Application) context.getApplicationContext()).sendNotification(intent.getExtras());
+        RNPushNotificationExecutor.getInstance().execute(SCHEDULER_KEY, new Runnable() {
+            @Override
+            public void run() {
+                helper.deliverScheduledNotification(intent.getExtras());
+            }
+        }, goAsync());
     }
 }
@@ -0,0 +1,125 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Random;
+
+/**
+ * Keeps the GCM registration token, so it is only fetched again when it is invalidated.
+ *
+ * The token is persisted along with the sender id and app version it was issued for,
+ * and is considered stale when either changes. Failed registrations are retried with
+ * an exponential backoff and jitter, so many devices failing at once do not retry in step.
+ */
+public class RNPushNotificationRegistration {
+    private static final String TAG = "RNPushNotification";
+
+    private static final long INITIAL_BACKOFF = 30 * 1000;
+    private static final long MAX_BACKOFF = 60 * 60 * 1000;
+
+    private static RNPushNotificationRegistration sInstance;
+
+    private final Context mContext;
+    private final RNPushNotificationConfig mConfig;
+    private final Random mRandom = new Random();
+
+    private String mSenderId;
+    private int mAppVersion = -1;
+
+    public static synchronized RNPushNotificationRegistration getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new RNPushNotificationRegistration(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private RNPushNotificationRegistration(Context context) {
+        mContext = context;
+        mConfig = new RNPushNotificationConfig(context);
+    }
+
+    /**
+     * The gcm_defaultSenderId string resource, or null when the app does not define it.
+     */
+    public synchronized String getSenderId() {
+        if (mSenderId == null) {
+            int resourceId = mContext.getResources().getIdentifier("gcm_defaultSenderId", "string", mContext.getPackageName());
+            if (resourceId != 0) {
+                mSenderId = mContext.getString(resourceId);
+            }
+        }
+        return mSenderId;
+    }
+
+    private synchronized int getAppVersion() {
+        if (mAppVersion < 0) {
+            try {
+                mAppVersion = mContext.getPackageManager().getPackageInfo(mContext.getPackageName(), 0).versionCode;
+            } catch (PackageManager.NameNotFoundException e) {
+                mAppVersion = 0;
+            }
+        }
+        return mAppVersion;
+    }
+
+    /**
+     * The persisted token, or null when there is none or it was issued for another
+     * sender id or app version.
+     */
+    public String getCachedToken() {
+        String token = mConfig.getToken();
+        String senderId = getSenderId();
+        if (token == null || senderId == null || !senderId.equals(mConfig.getTokenSenderId())
+                || mConfig.getTokenAppVersion() != getAppVersion()) {
+            return null;
+        }
+        return token;
+    }
+
+    public void saveToken(String token) {
+        mConfig.setToken(token, getSenderId(), getAppVersion());
+        mConfig.setRegistrationAttempts(0);
+        getAlarmManager().cancel(getRetryIntent());
+    }
+
+    /**
+     * Forget the token, for example once InstanceID reports it was refreshed.
+     */
+    public void invalidate() {
+        mConfig.setToken(null, null, 0);
+    }
+
+    /**
+     * Register again later. Every failure doubles the backoff, up to MAX_BACKOFF, and
+     * the actual delay is picked at random in its upper half.
+     */
+    public void scheduleRetry() {
+        int attempts = mConfig.getRegistrationAttempts();
+        long backoff = Math.min(MAX_BACKOFF, INITIAL_BACKOFF << Math.min(attempts, 16));
+        long delay = backoff / 2 + (long) (mRandom.nextDouble() * (backoff / 2));
+        mConfig.setRegistrationAttempts(attempts + 1);
+
+        Log.i(TAG, "Retrying registration in " + delay + "ms");
+        getAlarmManager().set(AlarmManager.ELAPSED_REALTIME, SystemClock.elapsedRealtime() + delay, getRetryIntent());
+    }
+
+    private AlarmManager getAlarmManager() {
+        return (AlarmManager) mContext.getSystemService(Context.ALARM_SERVICE);
+    }
+
+    /**
+     * A broadcast rather than the service itself, which cannot be started from the
+     * background on Android O and later. The receiver enqueues the registration job.
+     */
+    private PendingIntent getRetryIntent() {
+        Intent intent = new Intent(mContext, RNPushNotificationPublisher.class);
+        intent.setAction(RNPushNotificationPublisher.ACTION_REGISTER);
+        return PendingIntent.getBroadcast(mContext, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+}
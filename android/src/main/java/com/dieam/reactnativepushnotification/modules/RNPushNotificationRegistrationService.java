@@ -1,40 +1,59 @@
 package com.dieam.reactnativepushnotification.modules;
 
-import android.app.IntentService;
+import android.content.Context;
 import android.content.Intent;
+import android.support.v4.app.JobIntentService;
 import android.util.Log;
-import android.content.res.Resources;
 import com.google.android.gms.gcm.GoogleCloudMessaging;
 import com.google.android.gms.iid.InstanceID;
 
-public class RNPushNotificationRegistrationService extends IntentService {
+/**
+ * Fetches the GCM token, as a background job so it can be started while the app is in
+ * the background on Android O and later.
+ */
+public class RNPushNotificationRegistrationService extends JobIntentService {
 
     private static final String TAG = "RNPushNotification";
 
-    public RNPushNotificationRegistrationService() {
-        super(TAG);
+    private static final int JOB_ID = 0x524e5052;
+
+    public static void enqueue(Context context) {
+        enqueueWork(context, RNPushNotificationRegistrationService.class, JOB_ID, new Intent());
     }
 
     @Override
-    protected void onHandleIntent(Intent intent) {
-        Resources resources = getApplication().getResources();
-        String packageName = getApplication().getPackageName();
-        int resourceId = resources.getIdentifier("gcm_defaultSenderId", "string", packageName);
-        String SenderID = getString(resourceId);
+    protected void onHandleWork(Intent intent) {
+        RNPushNotificationRegistration registration = RNPushNotificationRegistration.getInstance(this);
+
+        // Requests queued behind the one that registered get its token.
+        String token = registration.getCachedToken();
+        if (token != null) {
+            sendRegistrationToken(token);
+            return;
+        }
+
+        String senderID = registration.getSenderId();
+        if (senderID == null) {
+            Log.e(TAG, "No gcm_defaultSenderId string resource, cannot register");
+            return;
+        }
+
         try {
             InstanceID instanceID = InstanceID.getInstance(this);
-            String token = instanceID.getToken(SenderID,
+            token = instanceID.getToken(senderID,
                     GoogleCloudMessaging.INSTANCE_ID_SCOPE, null);
+            registration.saveToken(token);
             sendRegistrationToken(token);
         } catch (Exception e) {
-            e.printStackTrace();
+            Log.e(TAG, "Registration failed", e);
+            registration.scheduleRetry();
         }
     }
 
     private void sendRegistrationToken(String token) {
         Intent intent = new Intent("RNPushNotificationRegisteredToken");
         intent.putExtra("token", token);
-        sendBroadcast(intent);
+        RNPushNotificationEventBus.send(this, intent);
     }
 
-}
\ No newline at end of file
+}
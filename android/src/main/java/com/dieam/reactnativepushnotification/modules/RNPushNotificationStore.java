@@ -0,0 +1,548 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent store for scheduled notifications, indexed by id and by fireDate.
+ *
+ * Backed by SQLite so that inserting, deleting and looking up the next due
+ * notification only touch the affected B-tree pages instead of rewriting every
+ * scheduled notification like the old SharedPreferences map did.
+ *
+ * Also holds the events that could not be delivered to JS yet, in arrival order.
+ */
+public class RNPushNotificationStore extends SQLiteOpenHelper {
+    private static final String DATABASE_NAME = "RNPushNotification.db";
+    private static final int DATABASE_VERSION = 5;
+
+    private static final String TABLE_NOTIFICATIONS = "notifications";
+    private static final String COLUMN_ID = "id";
+    private static final String COLUMN_FIRE_DATE = "fireDate";
+    private static final String COLUMN_DATA = "data";
+    private static final String COLUMN_DEADLINE = "deadline";
+    private static final String COLUMN_TAG = "tag";
+    private static final String COLUMN_GROUP = "notificationGroup";
+    private static final String COLUMN_CANCEL_CATEGORY = "cancelCategory";
+
+    // Read by fromCursor: the rowid, to delete records that cannot be read, then the record.
+    private static final String[] DATA_COLUMNS = new String[] { "rowid", COLUMN_DATA };
+
+    private static final String TABLE_EVENTS = "events";
+    private static final String COLUMN_SEQ = "seq";
+    private static final String COLUMN_NAME = "name";
+    private static final String COLUMN_PAYLOAD = "payload";
+    private static final String COLUMN_CREATED_AT = "createdAt";
+
+    private static RNPushNotificationStore sInstance;
+
+    private final Context mContext;
+
+    public static synchronized RNPushNotificationStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new RNPushNotificationStore(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private RNPushNotificationStore(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        mContext = context;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        createTables(db);
+        createEventsTable(db);
+        migrateFromPreferences(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            migrateToBinary(db);
+        } else if (oldVersion < 3) {
+            db.execSQL("ALTER TABLE " + TABLE_NOTIFICATIONS + " ADD COLUMN " + COLUMN_DEADLINE + " INTEGER");
+            db.execSQL("UPDATE " + TABLE_NOTIFICATIONS + " SET " + COLUMN_DEADLINE + " = " + COLUMN_FIRE_DATE);
+            createDeadlineIndex(db);
+        }
+        if (oldVersion < 4) {
+            createEventsTable(db);
+        }
+        // Version 1 tables were rebuilt with every column above.
+        if (oldVersion >= 2 && oldVersion < 5) {
+            addFilterColumns(db);
+        }
+    }
+
+    private void createTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_NOTIFICATIONS + " (" +
+                COLUMN_ID + " TEXT PRIMARY KEY NOT NULL, " +
+                COLUMN_FIRE_DATE + " INTEGER NOT NULL, " +
+                COLUMN_DATA + " BLOB NOT NULL, " +
+                COLUMN_DEADLINE + " INTEGER, " +
+                COLUMN_TAG + " TEXT, " +
+                COLUMN_GROUP + " TEXT, " +
+                COLUMN_CANCEL_CATEGORY + " TEXT)");
+        db.execSQL("CREATE INDEX " + TABLE_NOTIFICATIONS + "_" + COLUMN_FIRE_DATE +
+                " ON " + TABLE_NOTIFICATIONS + " (" + COLUMN_FIRE_DATE + ")");
+        createDeadlineIndex(db);
+        createFilterIndexes(db);
+    }
+
+    private void createDeadlineIndex(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX " + TABLE_NOTIFICATIONS + "_" + COLUMN_DEADLINE +
+                " ON " + TABLE_NOTIFICATIONS + " (" + COLUMN_DEADLINE + ")");
+    }
+
+    private void createFilterIndexes(SQLiteDatabase db) {
+        for (String column : new String[] { COLUMN_TAG, COLUMN_GROUP, COLUMN_CANCEL_CATEGORY }) {
+            db.execSQL("CREATE INDEX " + TABLE_NOTIFICATIONS + "_" + column +
+                    " ON " + TABLE_NOTIFICATIONS + " (" + column + ")");
+        }
+    }
+
+    /**
+     * Version 5 keeps the tag, group and cancel category in indexed columns, fill them in from the records.
+     */
+    private void addFilterColumns(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + TABLE_NOTIFICATIONS + " ADD COLUMN " + COLUMN_TAG + " TEXT");
+        db.execSQL("ALTER TABLE " + TABLE_NOTIFICATIONS + " ADD COLUMN " + COLUMN_GROUP + " TEXT");
+        db.execSQL("ALTER TABLE " + TABLE_NOTIFICATIONS + " ADD COLUMN " + COLUMN_CANCEL_CATEGORY + " TEXT");
+
+        Cursor cursor = db.query(TABLE_NOTIFICATIONS, DATA_COLUMNS, null, null, null, null, null);
+        List<Long> corrupt = new ArrayList<>();
+        try {
+            String[] args = new String[1];
+            while (cursor.moveToNext()) {
+                RNPushNotificationAttributes attributes = fromCursor(cursor, corrupt);
+                if (attributes == null || (attributes.getTag() == null && attributes.getGroup() == null)) {
+                    continue;
+                }
+                ContentValues values = new ContentValues(2);
+                values.put(COLUMN_TAG, attributes.getTag());
+                values.put(COLUMN_GROUP, attributes.getGroup());
+                args[0] = cursor.getString(0);
+                db.update(TABLE_NOTIFICATIONS, values, "rowid = ?", args);
+            }
+        } finally {
+            cursor.close();
+        }
+        removeRows(db, corrupt);
+        createFilterIndexes(db);
+    }
+
+    private void createEventsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_EVENTS + " (" +
+                COLUMN_SEQ + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                COLUMN_NAME + " TEXT NOT NULL, " +
+                COLUMN_PAYLOAD + " TEXT, " +
+                COLUMN_CREATED_AT + " INTEGER NOT NULL)");
+    }
+
+    /**
+     * Version 1 kept each notification as a JSON string, rewrite them with the binary codec.
+     */
+    private void migrateToBinary(SQLiteDatabase db) {
+        String legacyTable = TABLE_NOTIFICATIONS + "_v1";
+        db.execSQL("DROP INDEX IF EXISTS " + TABLE_NOTIFICATIONS + "_" + COLUMN_FIRE_DATE);
+        db.execSQL("DROP INDEX IF EXISTS " + TABLE_NOTIFICATIONS + "_" + COLUMN_DEADLINE);
+        db.execSQL("ALTER TABLE " + TABLE_NOTIFICATIONS + " RENAME TO " + legacyTable);
+        createTables(db);
+
+        Cursor cursor = db.query(legacyTable, DATA_COLUMNS, null, null, null, null, null);
+        // The records that cannot be read are dropped with the legacy table.
+        List<Long> corrupt = new ArrayList<>();
+        try {
+            while (cursor.moveToNext()) {
+                RNPushNotificationAttributes attributes = fromCursor(cursor, corrupt);
+                if (attributes != null) {
+                    db.insertWithOnConflict(TABLE_NOTIFICATIONS, null, toContentValues(attributes),
+                            SQLiteDatabase.CONFLICT_REPLACE);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        db.execSQL("DROP TABLE " + legacyTable);
+    }
+
+    /**
+     * Import the notifications scheduled by previous versions, which kept them
+     * as JSON strings in the RNPushNotification SharedPreferences file.
+     */
+    private void migrateFromPreferences(SQLiteDatabase db) {
+        SharedPreferences sharedPreferences = mContext.getSharedPreferences(
+                RNPushNotificationHelper.PREFERENCES_KEY, Context.MODE_PRIVATE);
+        Map<String, ?> entries = sharedPreferences.getAll();
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        int migrated = 0;
+        for (Object value : entries.values()) {
+            if (!(value instanceof String)) {
+                continue;
+            }
+            try {
+                RNPushNotificationAttributes attributes = new RNPushNotificationAttributes();
+                attributes.fromJson(new JSONObject((String) value));
+                if (attributes.getId() != null) {
+                    db.insertWithOnConflict(TABLE_NOTIFICATIONS, null, toContentValues(attributes),
+                            SQLiteDatabase.CONFLICT_REPLACE);
+                    migrated++;
+                }
+            } catch (Exception e) {
+                Log.e("RNPushNotification", "Could not migrate scheduled notification " + value, e);
+            }
+        }
+
+        sharedPreferences.edit().clear().commit();
+        Log.i("RNPushNotification", "Migrated " + migrated + " scheduled notifications from SharedPreferences");
+    }
+
+    private ContentValues toContentValues(RNPushNotificationAttributes attributes) {
+        ContentValues values = new ContentValues(7);
+        values.put(COLUMN_ID, attributes.getId());
+        values.put(COLUMN_FIRE_DATE, (long) attributes.getFireDate());
+        values.put(COLUMN_DEADLINE, (long) (attributes.getFireDate() + attributes.getTolerance()));
+        values.put(COLUMN_TAG, attributes.getTag());
+        values.put(COLUMN_GROUP, attributes.getGroup());
+        values.put(COLUMN_CANCEL_CATEGORY, attributes.getCancelCategory());
+        values.put(COLUMN_DATA, attributes.toBytes());
+        return values;
+    }
+
+    /**
+     * Read the notification in the current row of a cursor over DATA_COLUMNS, or return null
+     * and add the row to corrupt when its record cannot be read.
+     */
+    private RNPushNotificationAttributes fromCursor(Cursor cursor, List<Long> corrupt) {
+        RNPushNotificationAttributes attributes = new RNPushNotificationAttributes();
+        try {
+            // Rows written before the binary codec hold JSON, which fromBytes still understands.
+            attributes.fromBytes(cursor.getBlob(1));
+        } catch (IllegalArgumentException e) {
+            Log.e("RNPushNotification", "Dropping a stored notification that cannot be read", e);
+            corrupt.add(cursor.getLong(0));
+            return null;
+        }
+        return attributes;
+    }
+
+    /**
+     * Delete the notification rows with the given rowids, in a single transaction.
+     */
+    private void removeRows(SQLiteDatabase db, List<Long> rowids) {
+        if (rowids.isEmpty()) {
+            return;
+        }
+        db.beginTransaction();
+        try {
+            String[] args = new String[1];
+            for (long rowid : rowids) {
+                args[0] = Long.toString(rowid);
+                db.delete(TABLE_NOTIFICATIONS, "rowid = ?", args);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private List<RNPushNotificationAttributes> readAll(Cursor cursor) {
+        List<RNPushNotificationAttributes> result = new ArrayList<>(cursor.getCount());
+        List<Long> corrupt = new ArrayList<>();
+        try {
+            while (cursor.moveToNext()) {
+                RNPushNotificationAttributes attributes = fromCursor(cursor, corrupt);
+                if (attributes != null) {
+                    result.add(attributes);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        removeRows(getWritableDatabase(), corrupt);
+        return result;
+    }
+
+    public void put(RNPushNotificationAttributes attributes) {
+        getWritableDatabase().insertWithOnConflict(TABLE_NOTIFICATIONS, null, toContentValues(attributes),
+                SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * Insert or replace several notifications in a single transaction.
+     */
+    public void putAll(List<RNPushNotificationAttributes> attributesList) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (RNPushNotificationAttributes attributes : attributesList) {
+                db.insertWithOnConflict(TABLE_NOTIFICATIONS, null, toContentValues(attributes),
+                        SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public RNPushNotificationAttributes get(String id) {
+        Cursor cursor = getReadableDatabase().query(TABLE_NOTIFICATIONS, DATA_COLUMNS,
+                COLUMN_ID + " = ?", new String[] { id }, null, null, null);
+        List<Long> corrupt = new ArrayList<>(1);
+        try {
+            if (cursor.moveToFirst()) {
+                return fromCursor(cursor, corrupt);
+            }
+            return null;
+        } finally {
+            cursor.close();
+            removeRows(getWritableDatabase(), corrupt);
+        }
+    }
+
+    public boolean remove(String id) {
+        return getWritableDatabase().delete(TABLE_NOTIFICATIONS, COLUMN_ID + " = ?", new String[] { id }) > 0;
+    }
+
+    /**
+     * Delete several notifications in a single transaction.
+     */
+    public void removeAll(List<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            String[] args = new String[1];
+            for (String id : ids) {
+                args[0] = id;
+                db.delete(TABLE_NOTIFICATIONS, COLUMN_ID + " = ?", args);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * The scheduled notification with the earliest fireDate, or null when nothing is scheduled.
+     */
+    public RNPushNotificationAttributes nextDue() {
+        while (true) {
+            Cursor cursor = getReadableDatabase().query(TABLE_NOTIFICATIONS, DATA_COLUMNS,
+                    null, null, null, null, COLUMN_FIRE_DATE + " ASC", "1");
+            List<Long> corrupt = new ArrayList<>(1);
+            try {
+                if (!cursor.moveToFirst()) {
+                    return null;
+                }
+                RNPushNotificationAttributes attributes = fromCursor(cursor, corrupt);
+                if (attributes != null) {
+                    return attributes;
+                }
+            } finally {
+                cursor.close();
+            }
+            // The earliest one could not be read, look past it.
+            removeRows(getWritableDatabase(), corrupt);
+        }
+    }
+
+    /**
+     * The earliest time by which some scheduled notification has to be delivered,
+     * its fireDate plus its tolerance, or Long.MAX_VALUE when nothing is scheduled.
+     */
+    public long nextDeadline() {
+        Cursor cursor = getReadableDatabase().query(TABLE_NOTIFICATIONS, new String[] { COLUMN_DEADLINE },
+                COLUMN_DEADLINE + " IS NOT NULL", null, null, null, COLUMN_DEADLINE + " ASC", "1");
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : Long.MAX_VALUE;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Scheduled notifications with a fireDate in [from, to), ordered by fireDate.
+     */
+    public List<RNPushNotificationAttributes> getRange(long from, long to) {
+        return readAll(getReadableDatabase().query(TABLE_NOTIFICATIONS, DATA_COLUMNS,
+                COLUMN_FIRE_DATE + " >= ? AND " + COLUMN_FIRE_DATE + " < ?",
+                new String[] { Long.toString(from), Long.toString(to) },
+                null, null, COLUMN_FIRE_DATE + " ASC"));
+    }
+
+    public List<RNPushNotificationAttributes> getAll() {
+        return readAll(getReadableDatabase().query(TABLE_NOTIFICATIONS, DATA_COLUMNS,
+                null, null, null, null, COLUMN_FIRE_DATE + " ASC"));
+    }
+
+    /**
+     * Stream the store in chunks: read up to limit notifications stored after position into out,
+     * in storage order, and return the position to continue from, or -1 once everything was read.
+     * Start with position 0. Seeking by rowid keeps every chunk O(log n + limit), and rows removed
+     * between two chunks do not shift the following ones.
+     */
+    public long readChunk(long position, int limit, List<RNPushNotificationAttributes> out) {
+        Cursor cursor = getReadableDatabase().query(TABLE_NOTIFICATIONS, DATA_COLUMNS,
+                "rowid > ?", new String[] { Long.toString(position) }, null, null, "rowid ASC", Integer.toString(limit));
+        List<Long> corrupt = new ArrayList<>();
+        try {
+            int count = 0;
+            while (cursor.moveToNext()) {
+                count++;
+                position = cursor.getLong(0);
+                RNPushNotificationAttributes attributes = fromCursor(cursor, corrupt);
+                if (attributes != null) {
+                    out.add(attributes);
+                }
+            }
+            return count < limit ? -1 : position;
+        } finally {
+            cursor.close();
+            removeRows(getWritableDatabase(), corrupt);
+        }
+    }
+
+    public List<String> getAllIds() {
+        Cursor cursor = getReadableDatabase().query(TABLE_NOTIFICATIONS, new String[] { COLUMN_ID },
+                null, null, null, null, null);
+        List<String> ids = new ArrayList<>(cursor.getCount());
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+
+    public List<String> removeByTag(String tag) {
+        return removeBy(COLUMN_TAG, tag);
+    }
+
+    public List<String> removeByGroup(String group) {
+        return removeBy(COLUMN_GROUP, group);
+    }
+
+    public List<String> removeByCancelCategory(String cancelCategory) {
+        return removeBy(COLUMN_CANCEL_CATEGORY, cancelCategory);
+    }
+
+    /**
+     * Delete the notifications whose column equals value with a single statement, and
+     * return their ids.
+     */
+    private List<String> removeBy(String column, String value) {
+        SQLiteDatabase db = getWritableDatabase();
+        String[] args = new String[] { value };
+        List<String> ids = new ArrayList<>();
+
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.query(TABLE_NOTIFICATIONS, new String[] { COLUMN_ID },
+                    column + " = ?", args, null, null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    ids.add(cursor.getString(0));
+                }
+            } finally {
+                cursor.close();
+            }
+            if (!ids.isEmpty()) {
+                db.delete(TABLE_NOTIFICATIONS, column + " = ?", args);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return ids;
+    }
+
+    public long size() {
+        return DatabaseUtils.queryNumEntries(getReadableDatabase(), TABLE_NOTIFICATIONS);
+    }
+
+    public void clear() {
+        getWritableDatabase().delete(TABLE_NOTIFICATIONS, null, null);
+    }
+
+    /**
+     * Append an event for JS, dropping the oldest ones beyond capacity.
+     */
+    public void putEvent(String name, String payload, int capacity) {
+        SQLiteDatabase db = getWritableDatabase();
+        ContentValues values = new ContentValues(3);
+        values.put(COLUMN_NAME, name);
+        values.put(COLUMN_PAYLOAD, payload);
+        values.put(COLUMN_CREATED_AT, System.currentTimeMillis());
+
+        db.beginTransaction();
+        try {
+            long seq = db.insert(TABLE_EVENTS, null, values);
+            // Sequence numbers only grow and events are only dropped oldest first, so they stay contiguous.
+            db.delete(TABLE_EVENTS, COLUMN_SEQ + " <= ?", new String[] { Long.toString(seq - capacity) });
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Remove and return the pending events, oldest first, leaving out those created before notBefore.
+     */
+    public List<Event> takeEvents(long notBefore) {
+        SQLiteDatabase db = getWritableDatabase();
+        List<Event> events = new ArrayList<>();
+
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.query(TABLE_EVENTS, new String[] { COLUMN_NAME, COLUMN_PAYLOAD },
+                    COLUMN_CREATED_AT + " >= ?", new String[] { Long.toString(notBefore) },
+                    null, null, COLUMN_SEQ + " ASC");
+            try {
+                while (cursor.moveToNext()) {
+                    events.add(new Event(cursor.getString(0), cursor.getString(1)));
+                }
+            } finally {
+                cursor.close();
+            }
+            db.delete(TABLE_EVENTS, null, null);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return events;
+    }
+
+    /**
+     * An event kept for JS: its name and the notification it carries, as JSON.
+     */
+    public static class Event {
+        public final String name;
+        public final String payload;
+
+        Event(String name, String payload) {
+            this.name = name;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.os.Bundle;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class RNPushNotificationAttributesTest {
+
+    private static RNPushNotificationAttributes createFullAttributes() {
+        Bundle bundle = new Bundle();
+        bundle.putString("id", "42");
+        bundle.putString("message", "Take your pills \u2615");
+        bundle.putDouble("fireDate", 1500000000000.0);
+        bundle.putString("title", "Reminder");
+        bundle.putString("ticker", "Ticker");
+        bundle.putBoolean("autoCancel", false);
+        bundle.putString("largeIcon", "ic_large");
+        bundle.putString("smallIcon", "ic_small");
+        bundle.putString("bigText", "Big text");
+        bundle.putString("subText", "Sub text");
+        bundle.putString("number", "7");
+        bundle.putString("sound", "default");
+        bundle.putString("color", "#ff0000");
+        bundle.putString("tag", "pills");
+        bundle.putString("group", "health");
+        bundle.putBoolean("playSound", false);
+        bundle.putBoolean("vibrate", true);
+        bundle.putDouble("vibration", 300);
+        bundle.putString("actions", "[\"Taken\",\"Later\"]");
+        bundle.putDouble("tolerance", 60000);
+        bundle.putString("channelId", "reminders");
+        bundle.putString("cancelCategory", "medication");
+
+        RNPushNotificationAttributes attributes = new RNPushNotificationAttributes();
+        attributes.fromBundle(bundle);
+        return attributes;
+    }
+
+    private static void assertSameAttributes(RNPushNotificationAttributes expected, RNPushNotificationAttributes actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getMessage(), actual.getMessage());
+        assertEquals(expected.getFireDate(), actual.getFireDate(), 0);
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getTicker(), actual.getTicker());
+        assertEquals(expected.isAutoCancel(), actual.isAutoCancel());
+        assertEquals(expected.getLargeIcon(), actual.getLargeIcon());
+        assertEquals(expected.getSmallIcon(), actual.getSmallIcon());
+        assertEquals(expected.getBigText(), actual.getBigText());
+        assertEquals(expected.getSubText(), actual.getSubText());
+        assertEquals(expected.getNumber(), actual.getNumber());
+        assertEquals(expected.getSound(), actual.getSound());
+        assertEquals(expected.getColor(), actual.getColor());
+        assertEquals(expected.getTag(), actual.getTag());
+        assertEquals(expected.getGroup(), actual.getGroup());
+        assertEquals(expected.isPlaySound(), actual.isPlaySound());
+        assertEquals(expected.isVibrate(), actual.isVibrate());
+        assertEquals(expected.getVibration(), actual.getVibration(), 0);
+        assertEquals(expected.getActions(), actual.getActions());
+        assertEquals(expected.getTolerance(), actual.getTolerance(), 0);
+        assertEquals(expected.getChannelId(), actual.getChannelId());
+        assertEquals(expected.getCancelCategory(), actual.getCancelCategory());
+    }
+
+    @Test
+    public void binaryRoundTripKeepsEveryField() {
+        RNPushNotificationAttributes attributes = createFullAttributes();
+
+        RNPushNotificationAttributes decoded = new RNPushNotificationAttributes();
+        decoded.fromBytes(attributes.toBytes());
+
+        assertSameAttributes(attributes, decoded);
+    }
+
+    @Test
+    public void binaryRoundTripKeepsMissingFieldsMissing() {
+        RNPushNotificationAttributes attributes = new RNPushNotificationAttributes();
+        attributes.fromBundle(RNPushNotificationTestUtils.createScheduledNotification(1, "Hello", 1000));
+
+        RNPushNotificationAttributes decoded = new RNPushNotificationAttributes();
+        decoded.fromBytes(attributes.toBytes());
+
+        assertSameAttributes(attributes, decoded);
+        assertNull(decoded.getTitle());
+        assertNull(decoded.getTag());
+        assertFalse(decoded.toBundle().containsKey("tag"));
+    }
+
+    @Test
+    public void binaryRoundTripKeepsTheOtherFields() {
+        Bundle bundle = RNPushNotificationTestUtils.createScheduledNotification(1, "Hello", 1000);
+        bundle.putString("data", "{\"chat\":5}");
+        Bundle userInfo = new Bundle();
+        userInfo.putString("screen", "chat");
+        userInfo.putDouble("count", 2);
+        bundle.putBundle("userInfo", userInfo);
+        RNPushNotificationAttributes attributes = new RNPushNotificationAttributes();
+        attributes.fromBundle(bundle);
+
+        RNPushNotificationAttributes decoded = new RNPushNotificationAttributes();
+        decoded.fromBytes(attributes.toBytes());
+        Bundle restored = decoded.toBundle();
+
+        assertEquals("{\"chat\":5}", restored.getString("data"));
+        assertEquals("chat", restored.getBundle("userInfo").getString("screen"));
+        assertEquals(2, restored.getBundle("userInfo").getDouble("count"), 0);
+        assertTrue(restored.getBoolean("autoCancel"));
+    }
+
+    @Test
+    public void jsonRoundTripKeepsEveryField() {
+        RNPushNotificationAttributes attributes = createFullAttributes();
+
+        RNPushNotificationAttributes decoded = new RNPushNotificationAttributes();
+        decoded.fromJson(attributes.toJson());
+
+        assertSameAttributes(attributes, decoded);
+    }
+
+    @Test
+    public void readsLegacyJsonRecords() throws Exception {
+        RNPushNotificationAttributes attributes = createFullAttributes();
+        byte[] legacy = attributes.toJson().toString().getBytes(Charset.forName("UTF-8"));
+
+        RNPushNotificationAttributes decoded = new RNPushNotificationAttributes();
+        decoded.fromBytes(legacy);
+
+        assertSameAttributes(attributes, decoded);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownRecordVersions() {
+        new RNPushNotificationAttributes().fromBytes(new byte[] { 0x7f, 0x01 });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRecordsWithoutAnId() {
+        new RNPushNotificationAttributes().fromBytes("{\"message\":\"Hello\"}".getBytes(Charset.forName("UTF-8")));
+    }
+
+    @Test
+    public void legacyJsonDefaultsMatchBundleDefaults() throws Exception {
+        JSONObject json = new JSONObject();
+        json.put("id", "5");
+        json.put("message", "Hello");
+
+        RNPushNotificationAttributes decoded = new RNPushNotificationAttributes();
+        decoded.fromJson(json);
+
+        assertTrue(decoded.isPlaySound());
+        assertTrue(decoded.isVibrate());
+        assertEquals(0, decoded.getTolerance(), 0);
+    }
+
+    @Test
+    public void bundleRoundTripKeepsEveryField() {
+        RNPushNotificationAttributes attributes = createFullAttributes();
+
+        RNPushNotificationAttributes decoded = new RNPushNotificationAttributes();
+        decoded.fromBundle(attributes.toBundle());
+
+        assertSameAttributes(attributes, decoded);
+    }
+}
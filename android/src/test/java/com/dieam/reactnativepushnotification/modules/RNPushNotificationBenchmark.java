@@ -0,0 +1,54 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A small JMH style runner for the benchmarks, which need Robolectric and therefore run
+ * as unit tests rather than under JMH itself.
+ *
+ * Each benchmark is warmed up, then measured over several rounds. Results are printed as
+ * the median and best time per operation over the rounds, which are less sensitive to GC
+ * pauses than the mean. Benchmarks only run with -Dbenchmark=true.
+ */
+class RNPushNotificationBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    interface Operation {
+        /**
+         * Run the i-th operation of a round.
+         */
+        void run(int i) throws Exception;
+    }
+
+    static boolean isEnabled() {
+        return Boolean.getBoolean("benchmark");
+    }
+
+    /**
+     * Measure operation, called operationsPerRound times per round, and print the results.
+     */
+    static void run(String name, int operationsPerRound, Operation operation) throws Exception {
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            runRound(operationsPerRound, operation);
+        }
+
+        double[] nanosPerOperation = new double[MEASURED_ROUNDS];
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            nanosPerOperation[round] = (double) runRound(operationsPerRound, operation) / operationsPerRound;
+        }
+        Arrays.sort(nanosPerOperation);
+
+        System.out.println(String.format(Locale.US, "Benchmark %-40s median %12.1f ns/op  best %12.1f ns/op  (%d ops x %d rounds)",
+                name, nanosPerOperation[MEASURED_ROUNDS / 2], nanosPerOperation[0], operationsPerRound, MEASURED_ROUNDS));
+    }
+
+    private static long runRound(int operationsPerRound, Operation operation) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < operationsPerRound; i++) {
+            operation.run(i);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,172 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.app.Application;
+import android.os.Bundle;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks of the hot paths: the attributes codecs, Bundle serialization, building and
+ * posting notifications, and scheduling and cancelling with a large store.
+ *
+ * Run with: ./gradlew test -Dbenchmark=true --tests '*RNPushNotificationBenchmarks'
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class RNPushNotificationBenchmarks {
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private Application mApplication;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue(RNPushNotificationBenchmark.isEnabled());
+        RNPushNotificationTestUtils.resetSingletons();
+        mApplication = RuntimeEnvironment.application;
+        RNPushNotificationTestUtils.registerMainActivity(mApplication);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        RNPushNotificationTestUtils.resetSingletons();
+    }
+
+    private static RNPushNotificationAttributes createTypicalAttributes() {
+        Bundle bundle = RNPushNotificationTestUtils.createScheduledNotification(42, "Take your pills", 1500000000000L);
+        bundle.putString("title", "Reminder");
+        bundle.putString("bigText", "It is time to take your evening pills, then log them in the app.");
+        bundle.putString("tag", "pills");
+        bundle.putString("group", "health");
+        bundle.putString("actions", "[\"Taken\",\"Later\"]");
+        bundle.putDouble("tolerance", 60000);
+
+        RNPushNotificationAttributes attributes = new RNPushNotificationAttributes();
+        attributes.fromBundle(bundle);
+        return attributes;
+    }
+
+    @Test
+    public void attributesBinaryRoundTrip() throws Exception {
+        final RNPushNotificationAttributes attributes = createTypicalAttributes();
+        RNPushNotificationBenchmark.run("attributes binary round trip", 100000, new RNPushNotificationBenchmark.Operation() {
+            @Override
+            public void run(int i) {
+                new RNPushNotificationAttributes().fromBytes(attributes.toBytes());
+            }
+        });
+    }
+
+    @Test
+    public void attributesJsonRoundTrip() throws Exception {
+        final RNPushNotificationAttributes attributes = createTypicalAttributes();
+        RNPushNotificationBenchmark.run("attributes JSON round trip", 100000, new RNPushNotificationBenchmark.Operation() {
+            @Override
+            public void run(int i) throws Exception {
+                new RNPushNotificationAttributes().fromJson(new JSONObject(attributes.toJson().toString()));
+            }
+        });
+    }
+
+    @Test
+    public void bundleToJson() throws Exception {
+        final Bundle bundle = createTypicalAttributes().toBundle();
+        bundle.putBoolean("foreground", true);
+        bundle.putBoolean("userInteraction", false);
+        RNPushNotificationBenchmark.run("bundle to JSON", 100000, new RNPushNotificationBenchmark.Operation() {
+            @Override
+            public void run(int i) {
+                RNPushNotificationBundleConverter.toJson(bundle);
+            }
+        });
+    }
+
+    @Test
+    public void sendNotification() throws Exception {
+        final RNPushNotificationHelper helper = RNPushNotificationHelper.getInstance(mApplication);
+        final Bundle template = createTypicalAttributes().toBundle();
+        // Without a group, so only the notification itself is built and posted, not a summary.
+        template.remove("group");
+        RNPushNotificationBenchmark.run("sendNotification", 2000, new RNPushNotificationBenchmark.Operation() {
+            @Override
+            public void run(int i) {
+                Bundle bundle = new Bundle(template);
+                bundle.putString("id", Integer.toString(i % 100));
+                helper.sendNotification(bundle);
+            }
+        });
+    }
+
+    private void scheduleAndCancel(int storeSize) throws Exception {
+        final RNPushNotificationHelper helper = RNPushNotificationHelper.getInstance(mApplication);
+        final long now = System.currentTimeMillis();
+
+        List<RNPushNotificationAttributes> attributes = new ArrayList<>(storeSize);
+        for (int i = 0; i < storeSize; i++) {
+            attributes.add(RNPushNotificationTestUtils.createAttributes(i, now + HOUR + i * 1000L));
+        }
+        RNPushNotificationStore.getInstance(mApplication).putAll(attributes);
+
+        RNPushNotificationBenchmark.run("schedule and cancel, " + storeSize + " stored", 500, new RNPushNotificationBenchmark.Operation() {
+            @Override
+            public void run(int i) {
+                int id = -1 - i;
+                helper.sendNotificationScheduled(RNPushNotificationTestUtils.createScheduledNotification(
+                        id, "Benchmark", now + HOUR / 2 + i));
+                Bundle cancel = new Bundle();
+                cancel.putString("id", Integer.toString(id));
+                helper.cancelNotification(cancel);
+            }
+        });
+    }
+
+    @Test
+    public void scheduleAndCancelWith10kStored() throws Exception {
+        scheduleAndCancel(10000);
+    }
+
+    @Test
+    public void scheduleAndCancelWith100kStored() throws Exception {
+        scheduleAndCancel(100000);
+    }
+
+    @Test
+    public void cancelByGroupWith10kStored() throws Exception {
+        final RNPushNotificationHelper helper = RNPushNotificationHelper.getInstance(mApplication);
+        final RNPushNotificationStore store = RNPushNotificationStore.getInstance(mApplication);
+        final long now = System.currentTimeMillis();
+
+        List<RNPushNotificationAttributes> attributes = new ArrayList<>(10000);
+        for (int i = 0; i < 10000; i++) {
+            attributes.add(RNPushNotificationTestUtils.createAttributes(i, now + HOUR + i * 1000L));
+        }
+        store.putAll(attributes);
+
+        RNPushNotificationBenchmark.run("cancelByGroup of 10, 10000 stored", 500, new RNPushNotificationBenchmark.Operation() {
+            @Override
+            public void run(int i) {
+                List<RNPushNotificationAttributes> group = new ArrayList<>(10);
+                for (int j = 0; j < 10; j++) {
+                    Bundle bundle = RNPushNotificationTestUtils.createScheduledNotification(
+                            -1 - j, "Benchmark", now + HOUR / 2 + j);
+                    bundle.putString("group", "benchmark");
+                    RNPushNotificationAttributes member = new RNPushNotificationAttributes();
+                    member.fromBundle(bundle);
+                    group.add(member);
+                }
+                store.putAll(group);
+                helper.cancelByGroup("benchmark");
+            }
+        });
+    }
+}
@@ -0,0 +1,61 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.os.Bundle;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class RNPushNotificationBundleConverterTest {
+
+    @Test
+    public void serializesScalars() throws Exception {
+        Bundle bundle = RNPushNotificationTestUtils.createNotification(3, "Hello");
+        bundle.putBoolean("foreground", true);
+        bundle.putDouble("fireDate", 1234.5);
+        bundle.putInt("number", 2);
+
+        JSONObject json = new JSONObject(RNPushNotificationBundleConverter.toJson(bundle));
+
+        assertEquals("3", json.getString("id"));
+        assertEquals("Hello", json.getString("message"));
+        assertTrue(json.getBoolean("foreground"));
+        assertEquals(1234.5, json.getDouble("fireDate"), 0);
+        assertEquals(2, json.getInt("number"));
+    }
+
+    @Test
+    public void serializesListsAsArrays() throws Exception {
+        ArrayList<String> actions = new ArrayList<>();
+        actions.add("Accept");
+        actions.add("Reject");
+        Bundle bundle = RNPushNotificationTestUtils.createNotification(3, "Hello");
+        bundle.putStringArrayList("actions", actions);
+
+        JSONObject json = new JSONObject(RNPushNotificationBundleConverter.toJson(bundle));
+
+        JSONArray array = json.getJSONArray("actions");
+        assertEquals(2, array.length());
+        assertEquals("Reject", array.getString(1));
+    }
+
+    @Test
+    public void serializesNullValues() throws Exception {
+        Bundle bundle = RNPushNotificationTestUtils.createNotification(3, "Hello");
+        bundle.putString("title", null);
+
+        JSONObject json = new JSONObject(RNPushNotificationBundleConverter.toJson(bundle));
+
+        assertTrue(json.isNull("title"));
+    }
+}
@@ -0,0 +1,313 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.app.AlarmManager;
+import android.app.Application;
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Bundle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowAlarmManager;
+import org.robolectric.shadows.ShadowNotificationManager;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class RNPushNotificationHelperTest {
+    private static final long HOUR = 60 * 60 * 1000;
+
+    private RNPushNotificationHelper mHelper;
+    private RNPushNotificationStore mStore;
+    private ShadowNotificationManager mNotificationManager;
+    private ShadowAlarmManager mAlarmManager;
+
+    @Before
+    public void setUp() throws Exception {
+        RNPushNotificationTestUtils.resetSingletons();
+        Application application = RuntimeEnvironment.application;
+        RNPushNotificationTestUtils.registerMainActivity(application);
+
+        mHelper = RNPushNotificationHelper.getInstance(application);
+        mStore = RNPushNotificationStore.getInstance(application);
+        mNotificationManager = shadowOf((NotificationManager) application.getSystemService(Context.NOTIFICATION_SERVICE));
+        mAlarmManager = shadowOf((AlarmManager) application.getSystemService(Context.ALARM_SERVICE));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        RNPushNotificationTestUtils.resetSingletons();
+    }
+
+    private static String getText(Notification notification) {
+        return notification.extras.getCharSequence(Notification.EXTRA_TEXT).toString();
+    }
+
+    @Test
+    public void sendNotificationPostsIt() {
+        mHelper.sendNotification(RNPushNotificationTestUtils.createNotification(7, "Hello"));
+
+        Notification notification = mNotificationManager.getNotification(7);
+        assertNotNull(notification);
+        assertEquals("Hello", getText(notification));
+    }
+
+    @Test
+    public void sendNotificationPostsUnderItsTag() {
+        Bundle bundle = RNPushNotificationTestUtils.createNotification(7, "Hello");
+        bundle.putString("tag", "chat");
+
+        mHelper.sendNotification(bundle);
+
+        assertNotNull(mNotificationManager.getNotification("chat", 7));
+    }
+
+    @Test
+    public void everyNotificationOfABurstIsPosted() {
+        for (int i = 1; i <= RNPushNotificationGroupSummarizer.MAX_CHILDREN + 5; i++) {
+            Bundle bundle = RNPushNotificationTestUtils.createNotification(i, "Message " + i);
+            bundle.putString("group", "chat");
+            mHelper.sendNotification(bundle);
+        }
+
+        assertNotNull(mNotificationManager.getNotification(RNPushNotificationGroupSummarizer.MAX_CHILDREN + 5));
+    }
+
+    @Test
+    public void sendNotificationWithoutMessageIsIgnored() {
+        Bundle bundle = new Bundle();
+        bundle.putString("id", "7");
+
+        mHelper.sendNotification(bundle);
+
+        assertEquals(0, mNotificationManager.size());
+    }
+
+    @Test
+    public void updateNotificationChangesThePostedOne() {
+        mHelper.sendNotification(RNPushNotificationTestUtils.createNotification(7, "Hello"));
+
+        Bundle update = new Bundle();
+        update.putString("id", "7");
+        update.putString("message", "Hello again");
+        mHelper.updateNotification(update);
+
+        assertEquals(1, mNotificationManager.size());
+        assertEquals("Hello again", getText(mNotificationManager.getNotification(7)));
+    }
+
+    @Test
+    public void updateNotificationRebuildsItAfterARestart() {
+        Bundle bundle = RNPushNotificationTestUtils.createNotification(7, "Hello");
+        bundle.putString("title", "Greeting");
+        mHelper.sendNotification(bundle);
+
+        // A new helper, as after the process restarted, no longer has the builder.
+        RNPushNotificationHelper helper = new RNPushNotificationHelper(RuntimeEnvironment.application);
+        Bundle update = new Bundle();
+        update.putString("id", "7");
+        update.putString("message", "Hello again");
+
+        assertNull(helper.updateNotification(update));
+        Notification notification = mNotificationManager.getNotification(7);
+        assertEquals("Hello again", getText(notification));
+        assertEquals("Greeting", notification.extras.getCharSequence(Notification.EXTRA_TITLE).toString());
+    }
+
+    @Test
+    public void updateNotificationChangesAScheduledOne() {
+        mHelper.sendNotificationScheduled(RNPushNotificationTestUtils.createScheduledNotification(
+                7, "Later", System.currentTimeMillis() + HOUR));
+
+        Bundle update = new Bundle();
+        update.putString("id", "7");
+        update.putString("message", "Later, updated");
+
+        assertNull(mHelper.updateNotification(update));
+        assertEquals("Later, updated", mStore.get("7").getMessage());
+        assertEquals(0, mNotificationManager.size());
+    }
+
+    @Test
+    public void updateNotificationKeepsTheOtherFieldsOfAScheduledOne() {
+        Bundle bundle = RNPushNotificationTestUtils.createScheduledNotification(
+                7, "Later", System.currentTimeMillis() + HOUR);
+        bundle.putString("data", "{\"chat\":5}");
+        mHelper.sendNotificationScheduled(bundle);
+
+        Bundle update = new Bundle();
+        update.putString("id", "7");
+        update.putString("message", "Later, updated");
+        mHelper.updateNotification(update);
+
+        Bundle scheduled = mStore.get("7").toBundle();
+        assertEquals("Later, updated", scheduled.getString("message"));
+        assertEquals("{\"chat\":5}", scheduled.getString("data"));
+        assertTrue(scheduled.getBoolean("autoCancel"));
+    }
+
+    @Test
+    public void updateNotificationRejectsUnknownNotifications() {
+        Bundle update = new Bundle();
+        update.putString("id", "7");
+        update.putString("message", "Hello again");
+
+        assertNotNull(mHelper.updateNotification(update));
+        assertEquals(0, mNotificationManager.size());
+    }
+
+    @Test
+    public void scheduleStoresItAndSetsAnAlarm() {
+        mHelper.sendNotificationScheduled(RNPushNotificationTestUtils.createScheduledNotification(
+                7, "Later", System.currentTimeMillis() + HOUR));
+
+        assertNotNull(mStore.get("7"));
+        assertEquals(1, mAlarmManager.getScheduledAlarms().size());
+        assertEquals(0, mNotificationManager.size());
+    }
+
+    @Test
+    public void scheduleInThePastPostsRightAway() {
+        mHelper.sendNotificationScheduled(RNPushNotificationTestUtils.createScheduledNotification(
+                7, "Late", System.currentTimeMillis() - HOUR));
+
+        assertNotNull(mNotificationManager.getNotification(7));
+        assertNull(mStore.get("7"));
+    }
+
+    @Test
+    public void scheduleBatchReportsRejectedNotifications() {
+        List<String> errors = mHelper.sendNotificationsScheduled(Arrays.asList(
+                RNPushNotificationTestUtils.createScheduledNotification(1, "One", System.currentTimeMillis() + HOUR),
+                RNPushNotificationTestUtils.createNotification(2, "No date"),
+                RNPushNotificationTestUtils.createScheduledNotification(3, "Three", System.currentTimeMillis() + HOUR)));
+
+        assertNull(errors.get(0));
+        assertNotNull(errors.get(1));
+        assertNull(errors.get(2));
+        assertEquals(2, mStore.size());
+        assertEquals(2, mAlarmManager.getScheduledAlarms().size());
+    }
+
+    @Test
+    public void cancelRemovesTheAlarmAndTheStoredNotification() {
+        Bundle bundle = RNPushNotificationTestUtils.createScheduledNotification(
+                7, "Later", System.currentTimeMillis() + HOUR);
+        mHelper.sendNotificationScheduled(bundle);
+
+        Bundle cancel = new Bundle();
+        cancel.putString("id", "7");
+        mHelper.cancelNotification(cancel);
+
+        assertNull(mStore.get("7"));
+        assertEquals(0, mAlarmManager.getScheduledAlarms().size());
+    }
+
+    @Test
+    public void cancelByGroupCancelsScheduledAndShownNotifications() {
+        Bundle scheduled = RNPushNotificationTestUtils.createScheduledNotification(
+                1, "Later", System.currentTimeMillis() + HOUR);
+        scheduled.putString("group", "chat");
+        mHelper.sendNotificationScheduled(scheduled);
+        Bundle other = RNPushNotificationTestUtils.createScheduledNotification(
+                2, "Later", System.currentTimeMillis() + HOUR);
+        mHelper.sendNotificationScheduled(other);
+        Bundle shown = RNPushNotificationTestUtils.createNotification(3, "Now");
+        shown.putString("group", "chat");
+        mHelper.sendNotification(shown);
+
+        mHelper.cancelByGroup("chat");
+
+        assertNull(mStore.get("1"));
+        assertNotNull(mStore.get("2"));
+        assertEquals(1, mAlarmManager.getScheduledAlarms().size());
+        assertNull(mNotificationManager.getNotification(3));
+    }
+
+    @Test
+    public void cancelByTagCancelsShownNotifications() {
+        Bundle shown = RNPushNotificationTestUtils.createNotification(3, "Now");
+        shown.putString("tag", "chat");
+        mHelper.sendNotification(shown);
+
+        mHelper.cancelByTag("chat");
+
+        assertNull(mNotificationManager.getNotification("chat", 3));
+    }
+
+    @Test
+    public void cancelByTagLeavesTheAppsOwnNotifications() {
+        NotificationManager manager = (NotificationManager) RuntimeEnvironment.application
+                .getSystemService(Context.NOTIFICATION_SERVICE);
+        manager.notify("chat", 9, new Notification());
+        Bundle shown = RNPushNotificationTestUtils.createNotification(3, "Now");
+        shown.putString("tag", "chat");
+        mHelper.sendNotification(shown);
+
+        mHelper.cancelByTag("chat");
+
+        assertNull(mNotificationManager.getNotification("chat", 3));
+        assertNotNull(mNotificationManager.getNotification("chat", 9));
+    }
+
+    @Test
+    public void cancelAllClearsTheStoreAlarmsAndShownNotifications() {
+        for (int i = 0; i < 5; i++) {
+            mHelper.sendNotificationScheduled(RNPushNotificationTestUtils.createScheduledNotification(
+                    i, "Later", System.currentTimeMillis() + (i + 1) * HOUR));
+        }
+        mHelper.sendNotification(RNPushNotificationTestUtils.createNotification(7, "Now"));
+
+        mHelper.cancelAll();
+
+        assertEquals(0, mStore.size());
+        assertEquals(0, mAlarmManager.getScheduledAlarms().size());
+        assertEquals(0, mNotificationManager.size());
+    }
+
+    @Test
+    public void singleAlarmModeArmsOneAlarm() {
+        mHelper.setSchedulerMode(RNPushNotificationConfig.SCHEDULER_SINGLE_ALARM);
+        for (int i = 0; i < 5; i++) {
+            mHelper.sendNotificationScheduled(RNPushNotificationTestUtils.createScheduledNotification(
+                    i, "Later", System.currentTimeMillis() + (i + 1) * HOUR));
+        }
+
+        assertEquals(5, mStore.size());
+        assertEquals(1, mAlarmManager.getScheduledAlarms().size());
+    }
+
+    @Test
+    public void singleAlarmDeliveryPostsTheWholeNotification() {
+        mHelper.setSchedulerMode(RNPushNotificationConfig.SCHEDULER_SINGLE_ALARM);
+        Bundle bundle = RNPushNotificationTestUtils.createScheduledNotification(
+                7, "Due", System.currentTimeMillis() - 1000);
+        bundle.putString("data", "{\"chat\":5}");
+        RNPushNotificationAttributes attributes = new RNPushNotificationAttributes();
+        attributes.fromBundle(bundle);
+        mStore.put(attributes);
+
+        mHelper.deliverDueNotifications();
+
+        Notification notification = mNotificationManager.getNotification(7);
+        assertNotNull(notification);
+        assertTrue((notification.flags & Notification.FLAG_AUTO_CANCEL) != 0);
+        assertEquals("{\"chat\":5}", notification.extras.getBundle(RNPushNotificationHelper.EXTRA_NOTIFICATION)
+                .getString("data"));
+        assertNull(mStore.get("7"));
+    }
+}
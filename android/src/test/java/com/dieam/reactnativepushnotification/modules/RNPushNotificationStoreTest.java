@@ -0,0 +1,295 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Bundle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class RNPushNotificationStoreTest {
+    private static final String DATABASE_NAME = "RNPushNotification.db";
+
+    private RNPushNotificationStore mStore;
+
+    @Before
+    public void setUp() throws Exception {
+        RNPushNotificationTestUtils.resetSingletons();
+        mStore = RNPushNotificationStore.getInstance(RuntimeEnvironment.application);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        RNPushNotificationTestUtils.resetSingletons();
+    }
+
+    @Test
+    public void putGetAndRemove() {
+        mStore.put(RNPushNotificationTestUtils.createAttributes(1, 1000));
+
+        assertEquals("Notification 1", mStore.get("1").getMessage());
+        assertEquals(1, mStore.size());
+
+        assertTrue(mStore.remove("1"));
+        assertFalse(mStore.remove("1"));
+        assertNull(mStore.get("1"));
+    }
+
+    @Test
+    public void putReplacesTheSameId() {
+        mStore.put(RNPushNotificationTestUtils.createAttributes(1, 1000));
+        mStore.put(RNPushNotificationTestUtils.createAttributes(1, 2000));
+
+        assertEquals(1, mStore.size());
+        assertEquals(2000, mStore.get("1").getFireDate(), 0);
+    }
+
+    @Test
+    public void nextDueIsTheEarliest() {
+        mStore.putAll(Arrays.asList(
+                RNPushNotificationTestUtils.createAttributes(1, 3000),
+                RNPushNotificationTestUtils.createAttributes(2, 1000),
+                RNPushNotificationTestUtils.createAttributes(3, 2000)));
+
+        assertEquals("2", mStore.nextDue().getId());
+        assertEquals(1000, mStore.nextDeadline());
+    }
+
+    @Test
+    public void getRangeIsOrderedAndHalfOpen() {
+        mStore.putAll(Arrays.asList(
+                RNPushNotificationTestUtils.createAttributes(1, 3000),
+                RNPushNotificationTestUtils.createAttributes(2, 1000),
+                RNPushNotificationTestUtils.createAttributes(3, 2000)));
+
+        List<RNPushNotificationAttributes> range = mStore.getRange(1000, 3000);
+
+        assertEquals(2, range.size());
+        assertEquals("2", range.get(0).getId());
+        assertEquals("3", range.get(1).getId());
+    }
+
+    @Test
+    public void readChunkVisitsEveryNotificationOnce() {
+        List<RNPushNotificationAttributes> attributes = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            attributes.add(RNPushNotificationTestUtils.createAttributes(i, 1000 + i));
+        }
+        mStore.putAll(attributes);
+
+        List<RNPushNotificationAttributes> read = new ArrayList<>();
+        long position = 0;
+        int chunks = 0;
+        while (position >= 0) {
+            position = mStore.readChunk(position, 100, read);
+            chunks++;
+        }
+
+        assertEquals(250, read.size());
+        assertTrue(chunks >= 3);
+    }
+
+    @Test
+    public void removeAllDeletesOnlyTheGivenIds() {
+        mStore.putAll(Arrays.asList(
+                RNPushNotificationTestUtils.createAttributes(1, 1000),
+                RNPushNotificationTestUtils.createAttributes(2, 2000),
+                RNPushNotificationTestUtils.createAttributes(3, 3000)));
+
+        mStore.removeAll(Arrays.asList("1", "3"));
+
+        assertEquals(Arrays.asList("2"), mStore.getAllIds());
+    }
+
+    private static RNPushNotificationAttributes createAttributes(int id, String tag, String group, String cancelCategory) {
+        Bundle bundle = RNPushNotificationTestUtils.createScheduledNotification(id, "Notification " + id, 1000 + id);
+        bundle.putString("tag", tag);
+        bundle.putString("group", group);
+        bundle.putString("cancelCategory", cancelCategory);
+        RNPushNotificationAttributes attributes = new RNPushNotificationAttributes();
+        attributes.fromBundle(bundle);
+        return attributes;
+    }
+
+    @Test
+    public void removeByTagGroupAndCancelCategory() {
+        mStore.putAll(Arrays.asList(
+                createAttributes(1, "a", "chat", "work"),
+                createAttributes(2, "b", "chat", "home"),
+                createAttributes(3, "a", "news", "home"),
+                createAttributes(4, null, null, "home")));
+
+        assertEquals(Arrays.asList("1", "3"), sorted(mStore.removeByTag("a")));
+        assertEquals(Arrays.asList("2"), mStore.removeByGroup("chat"));
+        assertEquals(Arrays.asList("4"), mStore.removeByCancelCategory("home"));
+        assertTrue(mStore.removeByCancelCategory("home").isEmpty());
+        assertEquals(0, mStore.size());
+    }
+
+    private static List<String> sorted(List<String> ids) {
+        List<String> copy = new ArrayList<>(ids);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    @Test
+    public void unreadableRecordsAreSkippedAndDeleted() {
+        mStore.putAll(Arrays.asList(
+                RNPushNotificationTestUtils.createAttributes(1, 2000),
+                RNPushNotificationTestUtils.createAttributes(2, 3000)));
+        ContentValues values = new ContentValues();
+        values.put("id", "3");
+        values.put("fireDate", 1000);
+        values.put("data", new byte[] { 0x7f });
+        mStore.getWritableDatabase().insert("notifications", null, values);
+
+        assertEquals("1", mStore.nextDue().getId());
+        assertEquals(2, mStore.size());
+        assertEquals(2, mStore.getAll().size());
+    }
+
+    @Test
+    public void eventsAreBoundedAndTakenOldestFirst() {
+        for (int i = 0; i < 5; i++) {
+            mStore.putEvent("remoteNotificationReceived", "{\"id\":\"" + i + "\"}", 3);
+        }
+
+        List<RNPushNotificationStore.Event> events = mStore.takeEvents(0);
+
+        assertEquals(3, events.size());
+        assertEquals("{\"id\":\"2\"}", events.get(0).payload);
+        assertEquals("{\"id\":\"4\"}", events.get(2).payload);
+        assertTrue(mStore.takeEvents(0).isEmpty());
+    }
+
+    @Test
+    public void expiredEventsAreDropped() {
+        mStore.putEvent("remoteNotificationReceived", "{}", 10);
+
+        assertTrue(mStore.takeEvents(System.currentTimeMillis() + 60000).isEmpty());
+        assertTrue(mStore.takeEvents(0).isEmpty());
+    }
+
+    @Test
+    public void upgradeFromVersion1RewritesJsonAsBinary() throws Exception {
+        mStore = createDatabase(1, createAttributes(1, "a", "chat", "work"));
+
+        Cursor cursor = mStore.getReadableDatabase().rawQuery("SELECT data FROM notifications", null);
+        try {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(Cursor.FIELD_TYPE_BLOB, cursor.getType(0));
+            assertFalse(cursor.getBlob(0)[0] == '{');
+        } finally {
+            cursor.close();
+        }
+        assertEquals("Notification 1", mStore.get("1").getMessage());
+    }
+
+    @Test
+    public void upgradeFromVersion2FillsInTheDeadline() throws Exception {
+        mStore = createDatabase(2, createAttributes(1, null, null, null), createAttributes(2, null, null, null));
+
+        assertEquals(1001, mStore.nextDeadline());
+    }
+
+    @Test
+    public void upgradeFromVersion3AddsTheEventsTable() throws Exception {
+        mStore = createDatabase(3);
+
+        mStore.putEvent("remoteNotificationReceived", "{}", 10);
+
+        assertEquals(1, mStore.takeEvents(0).size());
+    }
+
+    @Test
+    public void upgradeFromVersion4FillsInTheFilterColumns() throws Exception {
+        mStore = createDatabase(4,
+                createAttributes(1, "a", "chat", "work"),
+                createAttributes(2, "b", "news", "home"));
+
+        assertEquals(Arrays.asList("1"), mStore.removeByTag("a"));
+        assertEquals(Arrays.asList("2"), mStore.removeByGroup("news"));
+        assertEquals(0, mStore.size());
+    }
+
+    @Test
+    public void upgradesFromEveryVersion() throws Exception {
+        for (int version = 1; version < 5; version++) {
+            mStore = createDatabase(version,
+                    createAttributes(1, "a", "chat", "work"),
+                    createAttributes(2, "b", "news", "home"));
+
+            assertEquals("version " + version, "1", mStore.nextDue().getId());
+            assertEquals("version " + version, 1001, mStore.nextDeadline());
+            assertEquals("version " + version, Arrays.asList("2"), mStore.removeByCancelCategory("home"));
+            mStore.putEvent("remoteNotificationReceived", "{}", 10);
+            assertEquals("version " + version, 1, mStore.takeEvents(0).size());
+        }
+    }
+
+    /**
+     * Write the store's database with the schema of an earlier version, holding attributesList
+     * in that version's record format, and return the store opening it.
+     */
+    private static RNPushNotificationStore createDatabase(int version, RNPushNotificationAttributes... attributesList)
+            throws Exception {
+        RNPushNotificationTestUtils.resetSingletons();
+        Context context = RuntimeEnvironment.application;
+        context.deleteDatabase(DATABASE_NAME);
+
+        File path = context.getDatabasePath(DATABASE_NAME);
+        path.getParentFile().mkdirs();
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(path, null);
+        try {
+            db.execSQL("CREATE TABLE notifications (id TEXT PRIMARY KEY NOT NULL, fireDate INTEGER NOT NULL, " +
+                    (version < 2 ? "data TEXT NOT NULL" : "data BLOB NOT NULL") +
+                    (version < 3 ? ")" : ", deadline INTEGER)"));
+            db.execSQL("CREATE INDEX notifications_fireDate ON notifications (fireDate)");
+            if (version >= 3) {
+                db.execSQL("CREATE INDEX notifications_deadline ON notifications (deadline)");
+            }
+            if (version >= 4) {
+                db.execSQL("CREATE TABLE events (seq INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, " +
+                        "payload TEXT, createdAt INTEGER NOT NULL)");
+            }
+            for (RNPushNotificationAttributes attributes : attributesList) {
+                ContentValues values = new ContentValues();
+                values.put("id", attributes.getId());
+                values.put("fireDate", (long) attributes.getFireDate());
+                if (version < 2) {
+                    values.put("data", attributes.toJson().toString());
+                } else {
+                    values.put("data", attributes.toBytes());
+                }
+                if (version >= 3) {
+                    values.put("deadline", (long) attributes.getFireDate());
+                }
+                db.insert("notifications", null, values);
+            }
+            db.setVersion(version);
+        } finally {
+            db.close();
+        }
+        return RNPushNotificationStore.getInstance(context);
+    }
+}
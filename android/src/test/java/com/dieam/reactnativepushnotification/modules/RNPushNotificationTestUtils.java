@@ -0,0 +1,103 @@
+package com.dieam.reactnativepushnotification.modules;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ResolveInfo;
+import android.os.Bundle;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Shared setup of the Robolectric tests and benchmarks.
+ */
+class RNPushNotificationTestUtils {
+    private static final Class<?>[] SINGLETONS = {
+            RNPushNotificationHelper.class,
+            RNPushNotificationStore.class,
+            RNPushNotificationIconCache.class,
+            RNPushNotificationExecutor.class,
+            RNPushNotificationAdmission.class,
+            RNPushNotificationRegistration.class,
+            RNPushNotificationForegroundTracker.class,
+            RNPushNotificationEventBuffer.class,
+            RNPushNotificationActionRegistry.class,
+    };
+
+    // Static registries, emptied instead of dropped.
+    private static final Object[][] REGISTRIES = {
+            { RNPushNotificationEventBus.class, "sReceivers" },
+            { RNPushNotificationActionReceiver.class, "sHandlers" },
+    };
+
+    /**
+     * The activity the notifications open, standing in for the app's main activity.
+     */
+    public static class MainActivity extends Activity {
+    }
+
+    /**
+     * Drop the per process singletons, which would otherwise outlive the application
+     * Robolectric creates for every test.
+     */
+    static void resetSingletons() throws Exception {
+        for (Class<?> singleton : SINGLETONS) {
+            Field field = singleton.getDeclaredField("sInstance");
+            field.setAccessible(true);
+            Object instance = field.get(null);
+            if (instance instanceof RNPushNotificationStore) {
+                ((RNPushNotificationStore) instance).close();
+            } else if (instance instanceof RNPushNotificationExecutor) {
+                ((RNPushNotificationExecutor) instance).shutdown();
+            }
+            field.set(null, null);
+        }
+
+        for (Object[] registry : REGISTRIES) {
+            Field field = ((Class<?>) registry[0]).getDeclaredField((String) registry[1]);
+            field.setAccessible(true);
+            ((Map<?, ?>) field.get(null)).clear();
+        }
+
+        RNPushNotificationMetrics.getInstance().reset();
+    }
+
+    /**
+     * Make MainActivity the launcher activity, which the helper opens from notifications.
+     */
+    static void registerMainActivity(Context context) {
+        Intent launchIntent = new Intent(Intent.ACTION_MAIN);
+        launchIntent.addCategory(Intent.CATEGORY_LAUNCHER);
+        launchIntent.setPackage(context.getPackageName());
+
+        ResolveInfo resolveInfo = new ResolveInfo();
+        resolveInfo.activityInfo = new ActivityInfo();
+        resolveInfo.activityInfo.packageName = context.getPackageName();
+        resolveInfo.activityInfo.name = MainActivity.class.getName();
+
+        shadowOf(context.getPackageManager()).addResolveInfoForIntent(launchIntent, resolveInfo);
+    }
+
+    static Bundle createNotification(int id, String message) {
+        Bundle bundle = new Bundle();
+        bundle.putString("id", Integer.toString(id));
+        bundle.putString("message", message);
+        return bundle;
+    }
+
+    static Bundle createScheduledNotification(int id, String message, long fireDate) {
+        Bundle bundle = createNotification(id, message);
+        bundle.putDouble("fireDate", fireDate);
+        return bundle;
+    }
+
+    static RNPushNotificationAttributes createAttributes(int id, long fireDate) {
+        RNPushNotificationAttributes attributes = new RNPushNotificationAttributes();
+        attributes.fromBundle(createScheduledNotification(id, "Notification " + id, fireDate));
+        return attributes;
+    }
+}
@@ -15,16 +15,40 @@ var NotificationsComponent = function() {
 
 };
 
+// Events carry the notification as a map when structured events are enabled, as JSON otherwise.
+var _toNotification = function(notifData) {
+	if (notifData.notification) {
+		return notifData.notification;
+	}
+	return JSON.parse(notifData.dataJSON);
+};
+
 NotificationsComponent.prototype.getInitialNotification = function () {
     return RNPushNotification.getInitialNotification()
         .then(function (notification) {
-            if (notification && notification.dataJSON) {
-                return JSON.parse(notification.dataJSON);
+            if (notification && (notification.notification || notification.dataJSON)) {
+                return _toNotification(notification);
             }
             return null;
         });
 };
 
+NotificationsComponent.prototype.setStructuredEvents = function(structuredEvents: boolean) {
+	RNPushNotification.setStructuredEvents(structuredEvents);
+};
+
+NotificationsComponent.prototype.configureEventBatching = function(options: Object) {
+	RNPushNotification.configureEventBatching(options);
+};
+
+NotificationsComponent.prototype.replayPendingEvents = function() {
+	RNPushNotification.replayPendingEvents();
+};
+
+NotificationsComponent.prototype.configureEventBuffer = function(options: Object) {
+	RNPushNotification.configureEventBuffer(options);
+};
+
 NotificationsComponent.prototype.requestPermissions = function() {
 	RNPushNotification.requestPermissions();
 };
@@ -41,10 +65,38 @@ NotificationsComponent.prototype.presentLocalNotification = function(details: Ob
 	RNPushNotification.presentLocalNotification(details);
 };
 
+NotificationsComponent.prototype.updateNotification = function(details: Object) {
+	return RNPushNotification.updateNotification(details);
+};
+
 NotificationsComponent.prototype.scheduleLocalNotification = function(details: Object) {
 	RNPushNotification.scheduleLocalNotification(details);
 };
 
+NotificationsComponent.prototype.scheduleLocalNotifications = function(detailsList: Array) {
+	return RNPushNotification.scheduleLocalNotifications(detailsList);
+};
+
+NotificationsComponent.prototype.configureScheduler = function(options: Object) {
+	RNPushNotification.configureScheduler(options);
+};
+
+NotificationsComponent.prototype.configurePushAdmission = function(options: Object) {
+	RNPushNotification.configurePushAdmission(options);
+};
+
+NotificationsComponent.prototype.getMetrics = function() {
+	return RNPushNotification.getMetrics();
+};
+
+NotificationsComponent.prototype.createChannel = function(details: Object) {
+	return RNPushNotification.createChannel(details);
+};
+
+NotificationsComponent.prototype.deleteChannel = function(channelId: String) {
+	RNPushNotification.deleteChannel(channelId);
+};
+
 NotificationsComponent.prototype.abandonPermissions = function() {
 	/* Void */
 };
@@ -59,7 +111,7 @@ NotificationsComponent.prototype.addEventListener = function(type: string, handl
 		listener =  DeviceEventEmitter.addListener(
 			DEVICE_NOTIF_EVENT,
 			function(notifData) {
-				var data = JSON.parse(notifData.dataJSON);
+				var data = _toNotification(notifData);
 				handler(data);
 			}
 		);
@@ -88,6 +140,14 @@ NotificationsComponent.prototype.registerNotificationActions = function(details)
 	RNPushNotification.registerNotificationActions(details);
 }
 
+NotificationsComponent.prototype.unregisterNotificationActions = function(details) {
+	RNPushNotification.unregisterNotificationActions(details);
+}
+
+NotificationsComponent.prototype.setNotificationActions = function(details) {
+	RNPushNotification.setNotificationActions(details);
+}
+
 module.exports = {
 	state: false,
 	component: new NotificationsComponent()
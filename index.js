@@ -10,6 +10,9 @@ var AppState = RNNotificationsComponent.state;
 var RNNotifications = RNNotificationsComponent.component;
 
 var Platform = require('react-native').Platform;
+var DeviceEventEmitter = require('react-native').DeviceEventEmitter;
+
+var NOTIF_BATCH_EVENT = 'notificationBatch';
 
 var Notifications = {
 	handler: RNNotifications,
@@ -18,6 +21,7 @@ var Notifications = {
 	onNotification: false,
 
 	isLoaded: false,
+	batchListener: null,
 
 	permissions: {
 		alert: true,
@@ -47,6 +51,9 @@ Notifications.callNative = function(name: String, params: Array) {
  * @param {function} 	options.onError - None
  * @param {Object}		options.permissions - Permissions list
  * @param {Boolean}		options.requestPermissions - Check permissions when register
+ * @param {Boolean}		options.structuredEvents - ANDROID ONLY: Receive notifications as objects instead of JSON strings
+ * @param {Object}		options.eventBatching - ANDROID ONLY: { interval, maxSize } to receive bursts of events in batches
+ * @param {Object}		options.eventBuffer - ANDROID ONLY: { capacity, ttl } of the events kept while JS is not listening
  */
 Notifications.configure = function(options: Object) {
 	if ( typeof options.onRegister !== 'undefined' ) {
@@ -69,6 +76,18 @@ Notifications.configure = function(options: Object) {
 		this.senderID = options.senderID;
 	}
 
+	if ( options.structuredEvents === true ) {
+		this.callNative( 'setStructuredEvents', [ true ] );
+	}
+
+	if ( typeof options.eventBatching !== 'undefined' ) {
+		this.configureEventBatching(options.eventBatching);
+	}
+
+	if ( typeof options.eventBuffer !== 'undefined' ) {
+		this.callNative( 'configureEventBuffer', [ options.eventBuffer ] );
+	}
+
 	if ( this.isLoaded === false ) {
 		this._onRegister = this._onRegister.bind(this);
 		this._onNotification = this._onNotification.bind(this);
@@ -76,6 +95,10 @@ Notifications.configure = function(options: Object) {
 		this.callNative( 'addEventListener', [ 'notification', this._onNotification ] );
 		this.callNative( 'addEventListener', [ 'localNotification', this._onNotification ] );
 
+		// Events received while JS was not listening come as one batch.
+		this._listenForBatches();
+		this.callNative( 'replayPendingEvents', [] );
+
 		if ( typeof options.popInitialNotification === 'undefined' ||
 			 options.popInitialNotification === true ) {
 			this.popInitialNotification(function(firstNotification) {
@@ -94,6 +117,34 @@ Notifications.configure = function(options: Object) {
 
 };
 
+/**
+ * ANDROID ONLY: Have native events buffered and sent over the bridge in batches.
+ * Batches are unpacked here, listeners still get one call per event.
+ * @param {Object}		options
+ * @param {Number}		options.interval - Milliseconds to buffer events for, 0 turns batching off
+ * @param {Number}		options.maxSize - Number of buffered events that triggers sending right away
+ */
+Notifications.configureEventBatching = function(options: Object) {
+	if ( Platform.OS !== 'android' ) {
+		return;
+	}
+
+	this._listenForBatches();
+	this.callNative( 'configureEventBatching', [ options ] );
+};
+
+Notifications._listenForBatches = function() {
+	if ( Platform.OS !== 'android' || this.batchListener !== null ) {
+		return;
+	}
+
+	this.batchListener = DeviceEventEmitter.addListener(NOTIF_BATCH_EVENT, function(batch) {
+		batch.forEach(function(event) {
+			DeviceEventEmitter.emit(event.name, event.body);
+		});
+	});
+};
+
 /* Unregister */
 Notifications.unregister = function() {
 	this.callNative( 'removeEventListener', [ 'register', this._onRegister ] )
@@ -145,6 +196,27 @@ Notifications.localNotificationSchedule = function(details: Object) {
 	}
 };
 
+/**
+ * Local Notifications Schedule, several at once
+ * @param {Array}		detailsList - List of details objects (same as localNotificationSchedule)
+ * @return {Promise}	ANDROID ONLY: Resolves with one { id, scheduled, error } result per notification
+ */
+Notifications.localNotificationScheduleBatch = function(detailsList: Array) {
+	if ( Platform.OS === 'ios' ) {
+		detailsList.forEach(function(details) {
+			this.localNotificationSchedule(details);
+		}.bind(this));
+		return Promise.resolve(null);
+	} else {
+		var notifications = detailsList.map(function(details) {
+			var notification = { ...details, fireDate: details.date };
+			delete notification.date;
+			return notification;
+		});
+		return this.handler.scheduleLocalNotifications(notifications);
+	}
+};
+
 /* Internal Functions */
 Notifications._onRegister = function(token: String) {
 	if ( this.onRegister !== false ) {
@@ -206,10 +278,38 @@ Notifications.presentLocalNotification = function() {
 	return this.callNative('presentLocalNotification', arguments);
 };
 
+Notifications.updateNotification = function() {
+	return this.callNative('updateNotification', arguments);
+};
+
 Notifications.scheduleLocalNotification = function() {
 	return this.callNative('scheduleLocalNotification', arguments);
 };
 
+Notifications.scheduleLocalNotifications = function() {
+	return this.callNative('scheduleLocalNotifications', arguments);
+};
+
+Notifications.configureScheduler = function() {
+	return this.callNative('configureScheduler', arguments);
+};
+
+Notifications.configurePushAdmission = function() {
+	return this.callNative('configurePushAdmission', arguments);
+};
+
+Notifications.getMetrics = function() {
+	return this.callNative('getMetrics', arguments);
+};
+
+Notifications.createChannel = function() {
+	return this.callNative('createChannel', arguments);
+};
+
+Notifications.deleteChannel = function() {
+	return this.callNative('deleteChannel', arguments);
+};
+
 Notifications.cancelAllLocalNotifications = function() {
 	return this.callNative('cancelAllLocalNotifications', arguments);
 };
@@ -243,4 +343,12 @@ Notifications.checkPermissions = function() {
 Notifications.registerNotificationActions = function() {
 	return this.callNative('registerNotificationActions', arguments)
 }
+
+Notifications.unregisterNotificationActions = function() {
+	return this.callNative('unregisterNotificationActions', arguments)
+}
+
+Notifications.setNotificationActions = function() {
+	return this.callNative('setNotificationActions', arguments)
+}
 module.exports = Notifications;